@@ -0,0 +1,103 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.HttpResponse;
+import net.lenni0451.commons.httpclient.executor.RequestExecutor;
+import net.lenni0451.commons.httpclient.requests.HttpContentRequest;
+import net.lenni0451.commons.httpclient.requests.HttpRequest;
+import net.lenni0451.commons.httpclient.utils.HttpRequestUtils;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends the requests using a java.net.http client shared by all http clients of a {@link PooledHttpTransport}.<br>
+ * Redirects are not supported by the shared clients. Requests which should follow redirects are sent over keep-alive URL connections instead.
+ */
+class PooledHttpClientExecutor extends RequestExecutor {
+
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList("connection", "content-length", "expect", "host", "upgrade"));
+
+    private final PooledHttpTransport transport;
+    private final KeepAliveURLConnectionExecutor fallbackExecutor;
+
+    PooledHttpClientExecutor(final HttpClient client, final PooledHttpTransport transport) {
+        super(client);
+
+        this.transport = transport;
+        this.fallbackExecutor = new KeepAliveURLConnectionExecutor(client);
+    }
+
+    @Override
+    public HttpResponse execute(final HttpRequest httpRequest) throws IOException, InterruptedException {
+        if (this.client.getProxyHandler().isProxySet() || this.isIgnoreInvalidSSL(httpRequest) || this.isFollowRedirects(httpRequest)) {
+            return this.fallbackExecutor.execute(httpRequest);
+        }
+
+        final CookieManager cookieManager = this.getCookieManager(httpRequest);
+        final java.net.http.HttpRequest.Builder requestBuilder = java.net.http.HttpRequest.newBuilder();
+        try {
+            requestBuilder.uri(httpRequest.getURL().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid request URL", e);
+        }
+        final int readTimeout = RequestDeadline.limitTimeout(this.client.getReadTimeout());
+        if (readTimeout > 0) {
+            requestBuilder.timeout(Duration.ofMillis(readTimeout));
+        }
+        if (httpRequest instanceof HttpContentRequest && ((HttpContentRequest) httpRequest).hasContent()) {
+            requestBuilder.method(httpRequest.getMethod(), java.net.http.HttpRequest.BodyPublishers.ofByteArray(((HttpContentRequest) httpRequest).getContent().getAsBytes()));
+        } else {
+            requestBuilder.method(httpRequest.getMethod(), java.net.http.HttpRequest.BodyPublishers.noBody());
+        }
+        for (Map.Entry<String, List<String>> entry : this.getHeaders(httpRequest, cookieManager).entrySet()) {
+            if (RESTRICTED_HEADERS.contains(entry.getKey().toLowerCase())) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                requestBuilder.header(entry.getKey(), value);
+            }
+        }
+
+        final java.net.http.HttpResponse<byte[]> response = this.transport.getClient(this.client.getConnectTimeout()).send(requestBuilder.build(), java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+        final Map<String, List<String>> headers = response.headers().map();
+        HttpRequestUtils.updateCookies(cookieManager, httpRequest.getURL(), headers);
+        return new HttpResponse(httpRequest.getURL(), response.statusCode(), response.body(), headers);
+    }
+
+    private boolean isFollowRedirects(final HttpRequest httpRequest) {
+        switch (httpRequest.getFollowRedirects()) {
+            case FOLLOW:
+                return true;
+            case IGNORE:
+                return false;
+            default:
+                return this.client.isFollowRedirects();
+        }
+    }
+
+}
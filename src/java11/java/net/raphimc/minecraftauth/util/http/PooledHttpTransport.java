@@ -0,0 +1,59 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.executor.RequestExecutor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends the requests using shared java.net.http clients, which keep their connections alive and multiplex requests to the same host over HTTP/2 connections.<br>
+ * This is the Java 11+ version of the class. Requests which need a proxy or ignore invalid SSL certificates are sent over keep-alive URL connections like on Java 8.
+ */
+public class PooledHttpTransport implements IHttpTransport {
+
+    private final Map<Long, java.net.http.HttpClient> clients = new ConcurrentHashMap<>();
+
+    @Override
+    public RequestExecutor createExecutor(final HttpClient httpClient) {
+        return new PooledHttpClientExecutor(httpClient, this);
+    }
+
+    /**
+     * @return True if requests are multiplexed over HTTP/2 connections
+     */
+    public boolean isHttp2() {
+        return true;
+    }
+
+    java.net.http.HttpClient getClient(final int connectTimeout) {
+        return this.clients.computeIfAbsent((long) connectTimeout, key -> {
+            final java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                    .version(java.net.http.HttpClient.Version.HTTP_2)
+                    .followRedirects(java.net.http.HttpClient.Redirect.NEVER);
+            if (connectTimeout > 0) {
+                builder.connectTimeout(Duration.ofMillis(connectTimeout));
+            }
+            return builder.build();
+        });
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util;
+
+import com.google.gson.JsonObject;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.impl.security.DefaultSecureRequest;
+import net.lenni0451.commons.httpclient.content.HttpContent;
+import net.lenni0451.commons.httpclient.model.HttpHeader;
+import net.lenni0451.commons.httpclient.requests.HttpContentRequest;
+import net.lenni0451.commons.httpclient.requests.HttpRequest;
+import net.lenni0451.commons.httpclient.requests.impl.PostRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link XblRequestSigner} with the previous implementation of {@link CryptUtil#getSignatureHeader(HttpRequest, ECPrivateKey)}, which buffered the signed data and signed it using jjwt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XblRequestSignerBenchmark {
+
+    private ECPrivateKey privateKey;
+    private PostRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        final KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        this.privateKey = (ECPrivateKey) keyPair.getPrivate();
+
+        final JsonObject postData = new JsonObject(); // Similar to a SISU authentication request
+        postData.addProperty("AccessToken", "t=" + Base64.getEncoder().encodeToString(new byte[1024]));
+        postData.addProperty("DeviceToken", Base64.getEncoder().encodeToString(new byte[512]));
+        postData.addProperty("AppId", "00000000441cc96b");
+        postData.add("ProofKey", CryptUtil.getProofKey((ECPublicKey) keyPair.getPublic()));
+        postData.addProperty("SiteName", "user.auth.xboxlive.com");
+        postData.addProperty("RelyingParty", "http://xboxlive.com");
+        postData.addProperty("Sandbox", "RETAIL");
+        postData.addProperty("UseModernGamertag", true);
+        this.request = new PostRequest("https://sisu.xboxlive.com/authorize");
+        this.request.setContent(new JsonContent(postData));
+
+        TimeUtil.getClientTimeOffsetMs(); // Don't measure the initial clock offset measurement
+    }
+
+    @Benchmark
+    public HttpHeader xblRequestSigner() throws IOException {
+        return XblRequestSigner.getSignatureHeader(this.request, this.privateKey);
+    }
+
+    @Benchmark
+    public HttpHeader buffered() throws IOException {
+        return getBufferedSignatureHeader(this.request, this.privateKey);
+    }
+
+    private static HttpHeader getBufferedSignatureHeader(final HttpRequest httpRequest, final ECPrivateKey privateKey) throws IOException {
+        final long windowsTimestamp = (Instant.now().plus(TimeUtil.getClientTimeOffset()).getEpochSecond() + 11644473600L) * 10000000L;
+
+        final ByteArrayOutputStream signatureContent = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(signatureContent);
+        data.writeInt(1); // Policy Version
+        data.writeByte(0); // 0 byte
+        data.writeLong(windowsTimestamp); // Timestamp
+        data.writeByte(0); // 0 byte
+        data.write(httpRequest.getMethod().getBytes(StandardCharsets.UTF_8)); // HTTP Method
+        data.writeByte(0); // 0 byte
+        data.write((httpRequest.getURL().getPath() + (httpRequest.getURL().getQuery() != null ? httpRequest.getURL().getQuery() : "")).getBytes(StandardCharsets.UTF_8));
+        data.writeByte(0); // 0 byte
+        final Optional<String> authorizationHeader = httpRequest.getFirstHeader("Authorization");
+        if (authorizationHeader.isPresent()) {
+            data.write(authorizationHeader.get().getBytes(StandardCharsets.UTF_8)); // Authorization Header
+        }
+        data.writeByte(0); // 0 byte
+        if (httpRequest instanceof HttpContentRequest) {
+            final HttpContent content = ((HttpContentRequest) httpRequest).getContent();
+            if (content != null) {
+                data.write(content.getAsBytes());
+            }
+        }
+        data.writeByte(0); // 0 byte
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        data = new DataOutputStream(header);
+        data.writeInt(1); // Policy Version
+        data.writeLong(windowsTimestamp); // Timestamp
+        data.write(Jwts.SIG.ES256.digest(new DefaultSecureRequest<>(new ByteArrayInputStream(signatureContent.toByteArray()), null, null, privateKey))); // Signature
+
+        return new HttpHeader("Signature", Base64.getEncoder().encodeToString(header.toByteArray()));
+    }
+
+}
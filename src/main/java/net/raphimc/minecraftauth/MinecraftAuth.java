@@ -38,6 +38,11 @@ import net.raphimc.minecraftauth.step.xbl.session.StepFullXblSession;
 import net.raphimc.minecraftauth.step.xbl.session.StepInitialXblSession;
 import net.raphimc.minecraftauth.util.MicrosoftConstants;
 import net.raphimc.minecraftauth.util.OAuthEnvironment;
+import net.raphimc.minecraftauth.util.http.IHttpTransport;
+import net.raphimc.minecraftauth.util.http.PooledHttpTransport;
+import net.raphimc.minecraftauth.util.http.RequestHedger;
+import net.raphimc.minecraftauth.util.keypair.DirectKeyPairSupplier;
+import net.raphimc.minecraftauth.util.keypair.IKeyPairSupplier;
 import net.raphimc.minecraftauth.util.logging.ConsoleLogger;
 import net.raphimc.minecraftauth.util.logging.ILogger;
 import org.jetbrains.annotations.ApiStatus;
@@ -49,6 +54,9 @@ public class MinecraftAuth {
 
     public static ILogger LOGGER = new ConsoleLogger();
     public static String USER_AGENT = "MinecraftAuth/" + VERSION;
+    public static IKeyPairSupplier KEY_PAIR_SUPPLIER = new DirectKeyPairSupplier();
+    public static IHttpTransport HTTP_TRANSPORT = new PooledHttpTransport();
+    public static RequestHedger REQUEST_HEDGER = null;
 
     public static final AbstractStep<?, StepFullJavaSession.FullJavaSession> JAVA_DEVICE_CODE_LOGIN = builder()
             .withClientId(MicrosoftConstants.JAVA_TITLE_ID).withScope(MicrosoftConstants.SCOPE_TITLE_AUTH)
@@ -107,7 +115,7 @@ public class MinecraftAuth {
     public static HttpClient createHttpClient() {
         final int timeout = 5000;
 
-        return new HttpClient()
+        return new HttpClient(HTTP_TRANSPORT::createExecutor)
                 .setConnectTimeout(timeout)
                 .setReadTimeout(timeout * 2)
                 .setCookieManager(null)
@@ -257,6 +265,22 @@ public class MinecraftAuth {
             return new InitialXblSessionBuilder(this);
         }
 
+        /**
+         * Same as {@link #localWebServer()}, but all logins receive their redirect through the given shared webserver instead of starting their own one.
+         *
+         * @param listener The shared webserver. It has to be started before the first login.
+         * @return The builder
+         */
+        public InitialXblSessionBuilder localWebServer(final LocalWebServerListener listener) {
+            if (this.applicationDetails.getRedirectUri() == null) {
+                this.applicationDetails = this.applicationDetails.withRedirectUri("http://localhost");
+            }
+
+            this.msaCodeStep = new StepLocalWebServerMsaCode(new StepLocalWebServer(this.applicationDetails, listener), this.timeout * 1000);
+
+            return new InitialXblSessionBuilder(this);
+        }
+
         public InitialXblSessionBuilder customMsaCodeStep(final AbstractStep<?, MsaCodeStep.MsaCode> msaCodeStep) {
             this.msaCodeStep = msaCodeStep;
 
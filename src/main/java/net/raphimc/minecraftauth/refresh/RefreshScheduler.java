@@ -0,0 +1,212 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.refresh;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.raphimc.minecraftauth.MinecraftAuth;
+import net.raphimc.minecraftauth.step.AbstractStep;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes registered token chains in the background before they expire.<br>
+ * Each chain is refreshed a configurable margin before the earliest expire time of its tokens. A random jitter is subtracted from that time, so that chains which were loaded at the same time don't all refresh at once.
+ */
+public class RefreshScheduler {
+
+    public static final long DEFAULT_REFRESH_MARGIN_MS = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_JITTER_MS = TimeUnit.MINUTES.toMillis(2);
+
+    private static final long MIN_RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService executor;
+    private final long refreshMarginMs;
+    private final long jitterMs;
+    private final Map<AbstractStep<?, ?>, Long> stepRefreshMarginsMs = new ConcurrentHashMap<>();
+
+    public RefreshScheduler(final HttpClient httpClient, final ScheduledExecutorService executor) {
+        this(httpClient, executor, DEFAULT_REFRESH_MARGIN_MS, DEFAULT_JITTER_MS);
+    }
+
+    /**
+     * @param httpClient      The http client used for refreshing
+     * @param executor        The executor on which the refreshes are scheduled and executed
+     * @param refreshMarginMs How long before the expire time a chain should be refreshed
+     * @param jitterMs        The maximum random time span by which a refresh is moved forward
+     */
+    public RefreshScheduler(final HttpClient httpClient, final ScheduledExecutorService executor, final long refreshMarginMs, final long jitterMs) {
+        if (refreshMarginMs < 0 || jitterMs < 0) {
+            throw new IllegalArgumentException("Refresh margin and jitter must not be negative");
+        }
+
+        this.httpClient = httpClient;
+        this.executor = executor;
+        this.refreshMarginMs = refreshMarginMs;
+        this.jitterMs = jitterMs;
+    }
+
+    /**
+     * Overrides the refresh margin for all chains of the given step
+     *
+     * @param step            The step
+     * @param refreshMarginMs How long before the expire time a chain should be refreshed
+     */
+    public void setRefreshMargin(final AbstractStep<?, ?> step, final long refreshMarginMs) {
+        if (refreshMarginMs < 0) {
+            throw new IllegalArgumentException("Refresh margin must not be negative");
+        }
+
+        this.stepRefreshMarginsMs.put(step, refreshMarginMs);
+    }
+
+    public long getRefreshMargin(final AbstractStep<?, ?> step) {
+        return this.stepRefreshMarginsMs.getOrDefault(step, this.refreshMarginMs);
+    }
+
+    /**
+     * Registers a token chain which should be kept refreshed
+     *
+     * @param step     The step which created the chain
+     * @param result   The chain
+     * @param listener The listener which gets notified about refreshed chains (For example to save them)
+     * @return The scheduled session which always holds the latest chain
+     */
+    public <O extends AbstractStep.StepResult<?>> ScheduledSession<O> schedule(final AbstractStep<?, O> step, final O result, final RefreshListener<O> listener) {
+        final ScheduledSession<O> session = new ScheduledSession<>(step, result, listener);
+        this.scheduleRefresh(session, 0);
+        return session;
+    }
+
+    private <O extends AbstractStep.StepResult<?>> void scheduleRefresh(final ScheduledSession<O> session, final long minDelayMs) {
+        synchronized (session) {
+            if (session.cancelled) {
+                return;
+            }
+
+            final long expireTimeMs = session.result.getExpireTimeMs();
+            if (expireTimeMs == Long.MAX_VALUE) {
+                session.nextRefreshTimeMs = Long.MAX_VALUE;
+                return;
+            }
+
+            final long jitterMs = this.jitterMs > 0 ? ThreadLocalRandom.current().nextLong(this.jitterMs) : 0;
+            long delayMs = expireTimeMs - this.getRefreshMargin(session.step) - jitterMs - System.currentTimeMillis();
+            if (delayMs <= 0 && minDelayMs == 0) { // Spread out chains which are already due
+                delayMs = jitterMs;
+            }
+            delayMs = Math.max(delayMs, minDelayMs);
+
+            session.nextRefreshTimeMs = System.currentTimeMillis() + delayMs;
+            session.future = this.executor.schedule(() -> this.refresh(session), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private <O extends AbstractStep.StepResult<?>> void refresh(final ScheduledSession<O> session) {
+        if (session.cancelled) {
+            return;
+        }
+
+        final O result = session.result;
+        try {
+            final O refreshedResult = session.step.refresh(this.httpClient, result, this.getRefreshMargin(session.step) + this.jitterMs);
+            session.failedRefreshes = 0;
+            if (refreshedResult != result) {
+                session.result = refreshedResult;
+                session.listener.onRefreshed(refreshedResult);
+            }
+            this.scheduleRefresh(session, MIN_RETRY_DELAY_MS);
+        } catch (Throwable e) {
+            MinecraftAuth.LOGGER.warn("Failed to refresh " + session.step.name + ": " + e.getMessage());
+            session.listener.onRefreshFailed(e);
+            final long retryDelayMs = Math.min(MIN_RETRY_DELAY_MS << Math.min(session.failedRefreshes++, 10), MAX_RETRY_DELAY_MS);
+            synchronized (session) {
+                if (!session.cancelled) {
+                    session.nextRefreshTimeMs = System.currentTimeMillis() + retryDelayMs;
+                    session.future = this.executor.schedule(() -> this.refresh(session), retryDelayMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    public interface RefreshListener<O extends AbstractStep.StepResult<?>> {
+
+        void onRefreshed(final O result);
+
+        default void onRefreshFailed(final Throwable throwable) {
+        }
+
+    }
+
+    public static class ScheduledSession<O extends AbstractStep.StepResult<?>> {
+
+        private final AbstractStep<?, O> step;
+        private final RefreshListener<O> listener;
+        private volatile O result;
+        private volatile long nextRefreshTimeMs;
+        private volatile boolean cancelled;
+        private ScheduledFuture<?> future;
+        private int failedRefreshes;
+
+        private ScheduledSession(final AbstractStep<?, O> step, final O result, final RefreshListener<O> listener) {
+            this.step = step;
+            this.result = result;
+            this.listener = listener;
+        }
+
+        public AbstractStep<?, O> getStep() {
+            return this.step;
+        }
+
+        /**
+         * @return The latest refreshed chain
+         */
+        public O getResult() {
+            return this.result;
+        }
+
+        /**
+         * @return The time at which the next refresh will happen or Long.MAX_VALUE if the chain never expires
+         */
+        public long getNextRefreshTimeMs() {
+            return this.nextRefreshTimeMs;
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        /**
+         * Stops refreshing the chain
+         */
+        public synchronized void cancel() {
+            this.cancelled = true;
+            if (this.future != null) {
+                this.future.cancel(false);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.refresh;
+
+import net.raphimc.minecraftauth.step.AbstractStep;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of a large amount of token chains and efficiently finds the ones which have to be refreshed.<br>
+ * The chains are indexed by the earliest expire time of their tokens in a hierarchical timing wheel, so registering, updating and polling due chains doesn't require scanning all chains.
+ */
+public class SessionRegistry {
+
+    public static final long DEFAULT_TICK_MS = TimeUnit.SECONDS.toMillis(1);
+
+    private final long refreshMarginMs;
+    private final TimingWheel<RegisteredSession<?>> timingWheel;
+    private int size;
+
+    public SessionRegistry() {
+        this(RefreshScheduler.DEFAULT_REFRESH_MARGIN_MS, DEFAULT_TICK_MS);
+    }
+
+    /**
+     * @param refreshMarginMs How long before the expire time a chain is due for refresh
+     * @param tickMs          The resolution of the due times
+     */
+    public SessionRegistry(final long refreshMarginMs, final long tickMs) {
+        this.refreshMarginMs = refreshMarginMs;
+        this.timingWheel = new TimingWheel<>(tickMs, System.currentTimeMillis());
+    }
+
+    public synchronized <O extends AbstractStep.StepResult<?>> RegisteredSession<O> register(final AbstractStep<?, O> step, final O result) {
+        final RegisteredSession<O> session = new RegisteredSession<>(step, result);
+        session.registry = this;
+        this.schedule(session);
+        this.size++;
+        return session;
+    }
+
+    /**
+     * Replaces the chain of the given session (For example after it has been refreshed) and reschedules it
+     *
+     * @param session The session
+     * @param result  The new chain
+     */
+    public synchronized <O extends AbstractStep.StepResult<?>> void update(final RegisteredSession<O> session, final O result) {
+        if (session.registry != this) {
+            throw new IllegalArgumentException("Session is not registered");
+        }
+
+        this.cancel(session);
+        session.result = result;
+        this.schedule(session);
+    }
+
+    public synchronized void unregister(final RegisteredSession<?> session) {
+        if (session.registry != this) {
+            return;
+        }
+
+        this.cancel(session);
+        session.registry = null;
+        this.size--;
+    }
+
+    public List<RegisteredSession<?>> pollDueSessions() {
+        return this.pollDueSessions(System.currentTimeMillis());
+    }
+
+    /**
+     * Gets all sessions which are due for refresh. The returned sessions stay registered, but won't be returned again until they are updated with a new chain.
+     *
+     * @param timeMs The current time
+     * @return The due sessions
+     */
+    public synchronized List<RegisteredSession<?>> pollDueSessions(final long timeMs) {
+        final List<RegisteredSession<?>> dueSessions = new ArrayList<>();
+        this.timingWheel.advance(timeMs, dueSessions);
+        for (RegisteredSession<?> session : dueSessions) {
+            session.timeout = null;
+        }
+        return dueSessions;
+    }
+
+    /**
+     * @return The amount of registered sessions
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * @return The amount of sessions which are waiting to become due
+     */
+    public synchronized int scheduledSize() {
+        return this.timingWheel.size();
+    }
+
+    private void schedule(final RegisteredSession<?> session) {
+        final long expireTimeMs = session.result.getExpireTimeMs();
+        if (expireTimeMs == Long.MAX_VALUE) {
+            session.dueTimeMs = Long.MAX_VALUE;
+            return;
+        }
+
+        session.dueTimeMs = expireTimeMs - this.refreshMarginMs;
+        session.timeout = this.timingWheel.schedule(session, session.dueTimeMs);
+    }
+
+    private void cancel(final RegisteredSession<?> session) {
+        if (session.timeout != null) {
+            this.timingWheel.cancel(session.timeout);
+            session.timeout = null;
+        }
+    }
+
+    public static class RegisteredSession<O extends AbstractStep.StepResult<?>> {
+
+        private final AbstractStep<?, O> step;
+        private volatile O result;
+        private volatile long dueTimeMs;
+        private SessionRegistry registry;
+        private TimingWheel.Timeout<RegisteredSession<?>> timeout;
+
+        private RegisteredSession(final AbstractStep<?, O> step, final O result) {
+            this.step = step;
+            this.result = result;
+        }
+
+        public AbstractStep<?, O> getStep() {
+            return this.step;
+        }
+
+        public O getResult() {
+            return this.result;
+        }
+
+        /**
+         * @return The time at which the session is due for refresh or Long.MAX_VALUE if the chain never expires
+         */
+        public long getDueTimeMs() {
+            return this.dueTimeMs;
+        }
+
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.refresh;
+
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel with O(1) insertion and removal.<br>
+ * Every level has 64 slots. A slot on level 0 covers one tick, a slot on level n covers 64^n ticks. Timeouts in higher levels are moved down to the lower levels once their slot is reached.
+ */
+class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+
+    private final long tickMs;
+    private final Bucket<T>[][] buckets;
+    private final Bucket<T> dueBucket = new Bucket<>();
+    private long currentTick;
+    private int size;
+
+    TimingWheel(final long tickMs, final long startTimeMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+
+        this.tickMs = tickMs;
+        this.buckets = new Bucket[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                this.buckets[level][slot] = new Bucket<>();
+            }
+        }
+        this.currentTick = startTimeMs / tickMs;
+    }
+
+    Timeout<T> schedule(final T value, final long deadlineMs) {
+        final Timeout<T> timeout = new Timeout<>(value, deadlineMs / this.tickMs);
+        this.insert(timeout);
+        this.size++;
+        return timeout;
+    }
+
+    void cancel(final Timeout<T> timeout) {
+        if (timeout.bucket != null) {
+            timeout.bucket.remove(timeout);
+            this.size--;
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time and collects all timeouts which are due
+     *
+     * @param timeMs The current time
+     * @param due    The list to add the values of the due timeouts to
+     */
+    void advance(final long timeMs, final List<T> due) {
+        final long targetTick = timeMs / this.tickMs;
+        while (this.currentTick < targetTick) {
+            this.currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                final int shift = SLOT_BITS * level;
+                if ((this.currentTick & ((1L << shift) - 1)) == 0) {
+                    final Bucket<T> bucket = this.buckets[level][(int) ((this.currentTick >>> shift) & SLOT_MASK)];
+                    Timeout<T> timeout = bucket.clear();
+                    while (timeout != null) {
+                        final Timeout<T> next = timeout.next;
+                        timeout.prev = timeout.next = null;
+                        this.insert(timeout);
+                        timeout = next;
+                    }
+                }
+            }
+            this.drain(this.buckets[0][(int) (this.currentTick & SLOT_MASK)], due);
+        }
+        this.drain(this.dueBucket, due);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    private void insert(final Timeout<T> timeout) {
+        if (timeout.deadlineTick <= this.currentTick) {
+            this.dueBucket.add(timeout);
+            return;
+        }
+
+        int level = 0;
+        while (level < LEVELS - 1 && (timeout.deadlineTick >>> (SLOT_BITS * (level + 1))) != (this.currentTick >>> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        this.buckets[level][(int) ((timeout.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK)].add(timeout);
+    }
+
+    private void drain(final Bucket<T> bucket, final List<T> due) {
+        Timeout<T> timeout = bucket.clear();
+        while (timeout != null) {
+            final Timeout<T> next = timeout.next;
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+            due.add(timeout.value);
+            this.size--;
+            timeout = next;
+        }
+    }
+
+    static class Timeout<T> {
+
+        private final T value;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(final T value, final long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+    }
+
+    private static class Bucket<T> {
+
+        private Timeout<T> head;
+
+        private void add(final Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = this.head;
+            if (this.head != null) {
+                this.head.prev = timeout;
+            }
+            this.head = timeout;
+        }
+
+        private void remove(final Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                this.head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        private Timeout<T> clear() {
+            final Timeout<T> head = this.head;
+            this.head = null;
+            return head;
+        }
+
+    }
+
+}
@@ -18,12 +18,14 @@
 package net.raphimc.minecraftauth.responsehandler;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import net.lenni0451.commons.httpclient.HttpResponse;
 import net.lenni0451.commons.httpclient.constants.ContentTypes;
 import net.lenni0451.commons.httpclient.constants.StatusCodes;
 import net.lenni0451.commons.httpclient.handler.HttpResponseHandler;
 import net.raphimc.minecraftauth.responsehandler.exception.InformativeHttpRequestException;
 import net.raphimc.minecraftauth.util.JsonUtil;
+import net.raphimc.minecraftauth.util.TimeUtil;
 
 import java.io.IOException;
 
@@ -31,16 +33,81 @@ public abstract class JsonHttpResponseHandler implements HttpResponseHandler<Jso
 
     @Override
     public JsonObject handle(final HttpResponse response) throws IOException {
-        if (response.getContentAsString().isEmpty() && response.getStatusCode() == StatusCodes.NO_CONTENT) {
+        if (!this.validate(response)) {
             return null;
         }
-        if (response.getContentAsString().isEmpty() && response.getStatusCode() >= 300) {
+
+        return this.parse(response);
+    }
+
+    /**
+     * Validates the response like {@link #handle(HttpResponse)}, but returns a reader over the body instead of parsing it into a tree.<br>
+     * Error responses are still parsed and handled as usual.
+     *
+     * @param response The response
+     * @return The reader over the response body or null if the response has no content
+     * @throws IOException If the response is an error response
+     */
+    public JsonReader handleStreaming(final HttpResponse response) throws IOException {
+        if (!this.validate(response)) {
+            return null;
+        }
+        if (response.getStatusCode() >= 300) {
+            this.parse(response);
+        }
+
+        return JsonUtil.createReader(response);
+    }
+
+    /**
+     * Creates a response handler which only reads the values at the given paths from the response body.<br>
+     * See {@link JsonUtil#readFields(JsonReader, String...)} for the path format. All values are required.
+     *
+     * @param paths The paths of the values
+     * @return The response handler
+     */
+    public HttpResponseHandler<String[]> fields(final String... paths) {
+        return response -> {
+            final JsonReader reader = this.handleStreaming(response);
+            if (reader == null) {
+                throw new InformativeHttpRequestException(response, "Empty response");
+            }
+
+            final String[] values = JsonUtil.readFields(reader, paths);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    throw new InformativeHttpRequestException(response, "Missing field " + paths[i]);
+                }
+            }
+            return values;
+        };
+    }
+
+    protected boolean validate(final HttpResponse response) throws IOException {
+        TimeUtil.updateClientTimeOffset(response);
+        final boolean empty = response.getContent().length == 0;
+        if (empty && response.getStatusCode() == StatusCodes.NO_CONTENT) {
+            return false;
+        }
+        if (empty && response.getStatusCode() >= 300) {
             throw new InformativeHttpRequestException(response, "Empty response");
         }
         if (!response.getContentType().orElse(ContentTypes.TEXT_PLAIN).getMimeType().equals(ContentTypes.APPLICATION_JSON.getMimeType())) {
             throw new InformativeHttpRequestException(response, "Wrong content type");
         }
-        final JsonObject obj = (JsonObject) JsonUtil.parseString(response.getContentAsString());
+        return true;
+    }
+
+    protected abstract void handleJsonError(final HttpResponse response, final JsonObject obj) throws IOException;
+
+    /**
+     * Handles the parsed response body. Error responses are passed to {@link #handleJsonError(HttpResponse, JsonObject)} and rejected.
+     *
+     * @param response The response
+     * @param obj      The parsed response body
+     * @return The result of the handler
+     */
+    protected JsonObject handleJson(final HttpResponse response, final JsonObject obj) throws IOException {
         if (response.getStatusCode() >= 300) {
             this.handleJsonError(response, obj);
             throw new InformativeHttpRequestException(response, response.getContentAsString());
@@ -49,6 +116,8 @@ public abstract class JsonHttpResponseHandler implements HttpResponseHandler<Jso
         return obj;
     }
 
-    protected abstract void handleJsonError(final HttpResponse response, final JsonObject obj) throws IOException;
+    private JsonObject parse(final HttpResponse response) throws IOException {
+        return this.handleJson(response, (JsonObject) JsonUtil.parseReader(JsonUtil.createReader(response)));
+    }
 
 }
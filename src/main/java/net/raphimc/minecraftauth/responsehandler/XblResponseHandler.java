@@ -20,6 +20,7 @@ package net.raphimc.minecraftauth.responsehandler;
 import com.google.gson.JsonObject;
 import net.lenni0451.commons.httpclient.HttpResponse;
 import net.raphimc.minecraftauth.responsehandler.exception.XblRequestException;
+import net.raphimc.minecraftauth.util.TimeUtil;
 
 import java.io.IOException;
 import java.util.Optional;
@@ -27,15 +28,16 @@ import java.util.Optional;
 public class XblResponseHandler extends JsonHttpResponseHandler {
 
     @Override
-    public JsonObject handle(final HttpResponse response) throws IOException {
+    protected boolean validate(final HttpResponse response) throws IOException {
         if (response.getStatusCode() >= 300) {
             final Optional<String> xErrHeader = response.getFirstHeader("X-Err");
             if (xErrHeader.isPresent()) {
+                TimeUtil.updateClientTimeOffset(response);
                 throw new XblRequestException(response, Long.parseLong(xErrHeader.get()));
             }
         }
 
-        return super.handle(response);
+        return super.validate(response);
     }
 
     @Override
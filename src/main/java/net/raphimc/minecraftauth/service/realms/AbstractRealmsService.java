@@ -28,6 +28,7 @@ import net.lenni0451.commons.httpclient.requests.HttpRequest;
 import net.lenni0451.commons.httpclient.requests.impl.GetRequest;
 import net.raphimc.minecraftauth.responsehandler.RealmsResponseHandler;
 import net.raphimc.minecraftauth.service.realms.model.RealmsWorld;
+import net.raphimc.minecraftauth.util.http.RequestHedger;
 
 import java.net.CookieManager;
 import java.util.ArrayList;
@@ -55,11 +56,13 @@ public abstract class AbstractRealmsService {
             @Override
             @SneakyThrows
             public Boolean get() {
-                final GetRequest getRequest = new GetRequest(CLIENT_COMPATIBLE_URL.replace("$HOST", AbstractRealmsService.this.host));
-                getRequest.setCookieManager(AbstractRealmsService.this.cookieManager);
-                getRequest.setHeader(Headers.ACCEPT, ContentTypes.TEXT_PLAIN.getMimeType());
-                AbstractRealmsService.this.addRequestHeaders(getRequest);
-                final String response = AbstractRealmsService.this.httpClient.execute(getRequest, new ThrowingResponseHandler()).getContentAsString();
+                final String response = RequestHedger.executeGet(AbstractRealmsService.this.httpClient, () -> {
+                    final GetRequest getRequest = new GetRequest(CLIENT_COMPATIBLE_URL.replace("$HOST", AbstractRealmsService.this.host));
+                    getRequest.setCookieManager(AbstractRealmsService.this.cookieManager);
+                    getRequest.setHeader(Headers.ACCEPT, ContentTypes.TEXT_PLAIN.getMimeType());
+                    AbstractRealmsService.this.addRequestHeaders(getRequest);
+                    return getRequest;
+                }, new ThrowingResponseHandler()).getContentAsString();
                 return response.equals("COMPATIBLE");
             }
         });
@@ -70,10 +73,12 @@ public abstract class AbstractRealmsService {
             @Override
             @SneakyThrows
             public List<RealmsWorld> get() {
-                final GetRequest getRequest = new GetRequest(WORLDS_URL.replace("$HOST", AbstractRealmsService.this.host));
-                getRequest.setCookieManager(AbstractRealmsService.this.cookieManager);
-                AbstractRealmsService.this.addRequestHeaders(getRequest);
-                final JsonObject obj = AbstractRealmsService.this.httpClient.execute(getRequest, new RealmsResponseHandler());
+                final JsonObject obj = RequestHedger.executeGet(AbstractRealmsService.this.httpClient, () -> {
+                    final GetRequest getRequest = new GetRequest(WORLDS_URL.replace("$HOST", AbstractRealmsService.this.host));
+                    getRequest.setCookieManager(AbstractRealmsService.this.cookieManager);
+                    AbstractRealmsService.this.addRequestHeaders(getRequest);
+                    return getRequest;
+                }, new RealmsResponseHandler());
 
                 final List<RealmsWorld> realmsWorlds = new ArrayList<>();
                 for (JsonElement server : obj.getAsJsonArray("servers")) {
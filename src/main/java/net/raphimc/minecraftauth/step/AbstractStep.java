@@ -17,11 +17,41 @@
  */
 package net.raphimc.minecraftauth.step;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import lombok.SneakyThrows;
 import net.lenni0451.commons.httpclient.HttpClient;
+import net.raphimc.minecraftauth.util.BinaryJsonCodec;
+import net.raphimc.minecraftauth.util.JsonUtil;
+import net.raphimc.minecraftauth.util.Lazy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public abstract class AbstractStep<I extends AbstractStep.StepResult<?>, O extends AbstractStep.StepResult<?>> {
 
+    /**
+     * Shared by all steps, so that concurrent refreshes of the same result are coalesced even across different login flows
+     */
+    protected static final RefreshCoordinator REFRESH_COORDINATOR = new RefreshCoordinator();
+    private static final int FLAT_JSON_VERSION = 1;
+
     public final String name;
     protected final AbstractStep<?, I> prevStep;
 
@@ -33,21 +63,444 @@ public abstract class AbstractStep<I extends AbstractStep.StepResult<?>, O exten
     public abstract O applyStep(final HttpClient httpClient, final I prevResult) throws Exception;
 
     public O refresh(final HttpClient httpClient, final O result) throws Exception {
-        if (!result.isExpired()) {
+        return this.refresh(httpClient, result, 0L);
+    }
+
+    /**
+     * Refreshes all tokens of the chain which are expired or expire within the given time span
+     *
+     * @param refreshAheadMs The time span in milliseconds
+     */
+    public O refresh(final HttpClient httpClient, final O result, final long refreshAheadMs) throws Exception {
+        if (!result.isExpired(refreshAheadMs)) {
             return result;
         }
 
-        return this.applyStep(httpClient, this.prevStep != null ? this.prevStep.refresh(httpClient, (I) result.prevResult()) : null);
+        return REFRESH_COORDINATOR.refresh(result, () -> this.doRefresh(httpClient, result, refreshAheadMs));
+    }
+
+    protected O doRefresh(final HttpClient httpClient, final O result, final long refreshAheadMs) throws Exception {
+        return this.applyStep(httpClient, this.prevStep != null ? this.prevStep.refresh(httpClient, (I) result.prevResult(), refreshAheadMs) : null);
+    }
+
+    public RefreshPlan planRefresh(final O result) {
+        return this.planRefresh(result, 0L);
+    }
+
+    /**
+     * Determines which steps a refresh of the given result would execute, without executing them
+     *
+     * @param refreshAheadMs The time span in milliseconds (See {@link #refresh(HttpClient, StepResult, long)})
+     * @return The refresh plan
+     */
+    public RefreshPlan planRefresh(final O result, final long refreshAheadMs) {
+        if (!result.isExpired(refreshAheadMs)) {
+            return RefreshPlan.EMPTY;
+        }
+
+        return this.doPlanRefresh(result, refreshAheadMs);
+    }
+
+    protected RefreshPlan doPlanRefresh(final O result, final long refreshAheadMs) {
+        final RefreshPlan prevPlan = this.prevStep != null ? this.prevStep.planRefresh((I) result.prevResult(), refreshAheadMs) : RefreshPlan.EMPTY;
+        return prevPlan.then(this);
+    }
+
+    /**
+     * @return The urls of the requests this step sends when it is applied
+     */
+    public List<String> getRequestUrls() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return The urls of the requests this step and all steps it depends on send when they are applied
+     */
+    public Set<String> getChainRequestUrls() {
+        final Set<String> requestUrls = new LinkedHashSet<>();
+        this.collectRequestUrls(requestUrls);
+        return requestUrls;
+    }
+
+    /**
+     * @return The hosts contacted by this step and all steps it depends on
+     */
+    public Set<String> getChainHosts() {
+        final Set<String> hosts = new LinkedHashSet<>();
+        for (String requestUrl : this.getChainRequestUrls()) {
+            hosts.add(URI.create(requestUrl).getHost());
+        }
+        return hosts;
+    }
+
+    protected void collectRequestUrls(final Set<String> requestUrls) {
+        if (this.prevStep != null) {
+            this.prevStep.collectRequestUrls(requestUrls);
+        }
+        requestUrls.addAll(this.getRequestUrls());
     }
 
     public O getFromInput(final HttpClient httpClient, final InitialInput input) throws Exception {
         return this.applyStep(httpClient, this.prevStep != null ? this.prevStep.getFromInput(httpClient, input) : (I) input);
     }
 
+    public CompletableFuture<O> applyStepAsync(final HttpClient httpClient, final I prevResult, final Executor executor) {
+        return CompletableFuture.supplyAsync(new Supplier<O>() {
+            @Override
+            @SneakyThrows
+            public O get() {
+                return AbstractStep.this.applyStep(httpClient, prevResult);
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<O> refreshAsync(final HttpClient httpClient, final O result, final Executor executor) {
+        return this.refreshAsync(httpClient, result, executor, false);
+    }
+
+    /**
+     * Refreshes the expired parts of the given result asynchronously
+     *
+     * @param parallel Whether independent branches of merge steps should be executed concurrently instead of one after the other
+     */
+    public CompletableFuture<O> refreshAsync(final HttpClient httpClient, final O result, final Executor executor, final boolean parallel) {
+        if (!result.isExpired()) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        return REFRESH_COORDINATOR.refreshAsync(result, () -> this.doRefreshAsync(httpClient, result, executor, parallel));
+    }
+
+    protected CompletableFuture<O> doRefreshAsync(final HttpClient httpClient, final O result, final Executor executor, final boolean parallel) {
+        final CompletableFuture<I> prevResultFuture = this.prevStep != null ? this.prevStep.refreshAsync(httpClient, (I) result.prevResult(), executor, parallel) : CompletableFuture.completedFuture(null);
+        return prevResultFuture.thenCompose(prevResult -> this.applyStepAsync(httpClient, prevResult, executor));
+    }
+
+    public CompletableFuture<O> getFromInputAsync(final HttpClient httpClient, final InitialInput input, final Executor executor) {
+        return this.getFromInputAsync(httpClient, input, executor, false);
+    }
+
+    /**
+     * Executes the whole step chain for the given input asynchronously
+     *
+     * @param parallel Whether independent branches of merge steps should be executed concurrently instead of one after the other
+     */
+    public CompletableFuture<O> getFromInputAsync(final HttpClient httpClient, final InitialInput input, final Executor executor, final boolean parallel) {
+        final CompletableFuture<I> prevResultFuture = this.prevStep != null ? this.prevStep.getFromInputAsync(httpClient, input, executor, parallel) : CompletableFuture.completedFuture((I) input);
+        return prevResultFuture.thenCompose(prevResult -> this.applyStepAsync(httpClient, prevResult, executor));
+    }
+
+    /**
+     * Starts the given task immediately if parallel execution is enabled, otherwise once the dependency has completed.
+     */
+    protected static <T> CompletableFuture<T> startAfter(final CompletableFuture<?> dependency, final Supplier<CompletableFuture<T>> task, final boolean parallel) {
+        if (parallel) {
+            return task.get();
+        } else {
+            return dependency.thenCompose(ignored -> task.get());
+        }
+    }
+
     public abstract O fromJson(final JsonObject json);
 
     public abstract JsonObject toJson(final O result);
 
+    /**
+     * Writes the result as json without building a {@link JsonObject} tree first.<br>
+     * The output is the same as writing the result of {@link #toJson(StepResult)} using {@link JsonUtil#GSON}.
+     *
+     * @param writer The writer
+     * @param result The result
+     */
+    public final void writeJson(final Writer writer, final O result) throws IOException {
+        final JsonWriter jsonWriter = JsonUtil.GSON.newJsonWriter(writer);
+        this.writeJson(jsonWriter, result, null);
+        jsonWriter.flush();
+    }
+
+    /**
+     * Reads a result written by {@link #writeJson(Writer, StepResult)} or {@link #toJson(StepResult)} without building a {@link JsonObject} tree first
+     *
+     * @param reader The reader
+     * @return The result
+     */
+    public final O readJson(final Reader reader) throws IOException {
+        return this.readJson(JsonUtil.GSON.newJsonReader(reader), null, null);
+    }
+
+    /**
+     * Serializes the result into a flat json layout. The result of every step is stored once under the id of the step (See {@link #getStepIds()}) and results refer to the results of their previous steps by id.<br>
+     * Unlike in {@link #toJson(StepResult)}, results are neither nested nor removed as duplicates of results in another part of the chain.
+     *
+     * @param result The result
+     * @return The flat json
+     */
+    public final JsonObject toFlatJson(final O result) {
+        final Map<AbstractStep<?, ?>, String> stepIds = this.getStepIds();
+        final JsonObject results = new JsonObject();
+        this.flattenJson(this.toJson(result), stepIds, results);
+        for (Map.Entry<AbstractStep<?, ?>, String> entry : stepIds.entrySet()) { // Refer to the results which toJson removed as duplicates
+            final JsonObject stepJson = results.getAsJsonObject(entry.getValue());
+            if (stepJson != null) {
+                for (AbstractStep<?, ?> prevStep : entry.getKey().getPrevSteps()) {
+                    if (!stepJson.has(prevStep.name) && results.has(stepIds.get(prevStep))) {
+                        stepJson.addProperty(prevStep.name, stepIds.get(prevStep));
+                    }
+                }
+            }
+        }
+        final JsonObject json = new JsonObject();
+        json.addProperty("version", FLAT_JSON_VERSION);
+        json.add("results", results);
+        return json;
+    }
+
+    /**
+     * Deserializes a result written by {@link #toFlatJson(StepResult)}. The given json is not modified.<br>
+     * The result of every step is created once and passed to all steps using it.
+     *
+     * @param json The flat json
+     * @return The result
+     */
+    public final O fromFlatJson(final JsonObject json) {
+        if (!json.has("version") || json.get("version").getAsInt() != FLAT_JSON_VERSION) {
+            throw new IllegalArgumentException("Unsupported flat json version: " + json.get("version"));
+        }
+        final JsonObject tree = this.unflattenJson(json.getAsJsonObject("results"), this.getStepIds(), Collections.newSetFromMap(new IdentityHashMap<>()));
+        try {
+            return this.readJson(new JsonTreeReader(tree), null, null);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid flat json", e);
+        }
+    }
+
+    /**
+     * Gets the ids of this step and all steps it depends on. The id of a step is its name, unless another step in the chain already uses the name.
+     *
+     * @return The ids of the steps
+     */
+    public Map<AbstractStep<?, ?>, String> getStepIds() {
+        final Map<AbstractStep<?, ?>, String> stepIds = new IdentityHashMap<>();
+        this.collectStepIds(stepIds, new HashSet<>());
+        return stepIds;
+    }
+
+    /**
+     * @return The steps whose results are the input of this step
+     */
+    protected List<AbstractStep<?, ?>> getPrevSteps() {
+        return this.prevStep != null ? Collections.singletonList(this.prevStep) : Collections.emptyList();
+    }
+
+    /**
+     * Serializes the result into the compact binary format of {@link BinaryJsonCodec}. It converts losslessly to and from the json created by {@link #toJson(StepResult)}.
+     *
+     * @param result The result
+     * @return The binary data
+     */
+    public final byte[] toBinary(final O result) {
+        return BinaryJsonCodec.toBytes(this.toJson(result));
+    }
+
+    /**
+     * Deserializes a result written by {@link #toBinary(StepResult)}
+     *
+     * @param data The binary data
+     * @return The result
+     */
+    public final O fromBinary(final byte[] data) {
+        return this.fromJson(BinaryJsonCodec.fromBytes(data).getAsJsonObject());
+    }
+
+    /**
+     * Finds the result which expires first in a token chain written by {@link #toJson(StepResult)} or {@link #writeJson(Writer, StepResult)}.<br>
+     * Only the expire times are read. No step results are created and no keys are decoded, which makes this much cheaper than loading the chain to check whether it has to be refreshed.
+     *
+     * @param reader The reader
+     * @return The earliest expire time and the step it belongs to
+     */
+    public final ExpiryScan scanExpiry(final Reader reader) throws IOException {
+        return this.scanExpiry(JsonUtil.GSON.newJsonReader(reader), ExpiryScan.NEVER);
+    }
+
+    /**
+     * Writes the result as json. Steps should override this to write their fields directly, the default implementation writes the tree created by {@link #toJson(StepResult)}.
+     *
+     * @param omittedStep A step in the chain of this step whose result is not written, because it is written elsewhere (See {@link SameInputStep}) or null
+     */
+    protected void writeJson(final JsonWriter writer, final O result, final AbstractStep<?, ?> omittedStep) throws IOException {
+        final JsonObject json = this.toJson(result);
+        if (omittedStep != null) {
+            final JsonObject parentJson = this.getParentJson(json, omittedStep);
+            if (parentJson != null) {
+                parentJson.remove(omittedStep.name);
+            }
+        }
+        JsonUtil.GSON.toJson(json, writer);
+    }
+
+    /**
+     * Reads a result written by {@link #writeJson(JsonWriter, StepResult, AbstractStep)}. Steps should override this to read their fields directly, the default implementation reads a tree and passes it to {@link #fromJson(JsonObject)}.
+     *
+     * @param providedStep   A step in the chain of this step whose result is not contained in the json or null
+     * @param providedResult The result of the provided step
+     */
+    protected O readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final StepResult<?> providedResult) throws IOException {
+        return this.fromJson((JsonObject) JsonUtil.parseReader(reader), providedStep, providedResult);
+    }
+
+    /**
+     * Like {@link #fromJson(JsonObject)}, but inserts the json of the provided result into the chain first
+     */
+    protected O fromJson(final JsonObject json, final AbstractStep<?, ?> providedStep, final StepResult<?> providedResult) {
+        if (providedStep == null) {
+            return this.fromJson(json);
+        }
+
+        final JsonObject copy = JsonUtil.shallowCopy(json); // Only the objects on the path to the provided result are copied
+        JsonObject parentJson = copy;
+        AbstractStep<?, ?> currentStep = this;
+        while (currentStep.prevStep != null && currentStep.prevStep != providedStep) {
+            final JsonObject prevJson = parentJson.getAsJsonObject(currentStep.prevStep.name);
+            if (prevJson == null) {
+                return this.fromJson(json);
+            }
+            final JsonObject prevCopy = JsonUtil.shallowCopy(prevJson);
+            parentJson.add(currentStep.prevStep.name, prevCopy);
+            parentJson = prevCopy;
+            currentStep = currentStep.prevStep;
+        }
+        if (currentStep.prevStep == providedStep && !parentJson.has(providedStep.name)) {
+            parentJson.add(providedStep.name, ((AbstractStep) providedStep).toJson(providedResult));
+        }
+        return this.fromJson(copy);
+    }
+
+    protected ExpiryScan scanExpiry(final JsonReader reader, ExpiryScan scan) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            final AbstractStep<?, ?> prevStep = this.findPrevStep(name);
+            if (prevStep != null) {
+                scan = prevStep.scanExpiry(reader, scan);
+            } else if (name.equals("expireTimeMs") && reader.peek() == JsonToken.NUMBER) {
+                scan = scan.earliest(this, reader.nextLong());
+            } else if (reader.peek() == JsonToken.BEGIN_OBJECT) { // Tokens nested in the result of this step
+                scan = this.scanExpiry(reader, scan);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return scan;
+    }
+
+    /**
+     * @return The previous step whose result is stored under the given name in the json of this step or null
+     */
+    protected AbstractStep<?, ?> findPrevStep(final String name) {
+        return this.isPrevStepName(name) ? this.prevStep : null;
+    }
+
+    protected void writePrevJson(final JsonWriter writer, final I prevResult, final AbstractStep<?, ?> omittedStep) throws IOException {
+        if (this.prevStep != null && this.prevStep != omittedStep) {
+            writer.name(this.prevStep.name);
+            this.prevStep.writeJson(writer, prevResult, omittedStep);
+        }
+    }
+
+    protected I readPrevJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final StepResult<?> providedResult) throws IOException {
+        return this.prevStep.readJson(reader, providedStep, providedResult);
+    }
+
+    /**
+     * Like {@link #readPrevJson(JsonReader, AbstractStep, StepResult)}, but only reads the json of the previous result and creates the result on first access
+     */
+    protected Lazy<I> readPrevJsonLazily(final JsonReader reader, final AbstractStep<?, ?> providedStep, final StepResult<?> providedResult) throws IOException {
+        final JsonObject prevJson = (JsonObject) JsonUtil.parseReader(reader);
+        return Lazy.of(() -> {
+            try {
+                return this.prevStep.readJson(new JsonTreeReader(prevJson), providedStep, providedResult);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid json of step " + this.prevStep.name, e);
+            }
+        });
+    }
+
+    /**
+     * @return The provided result if it is the result of the previous step, which is then not contained in the json
+     */
+    protected I getProvidedPrevResult(final AbstractStep<?, ?> providedStep, final StepResult<?> providedResult) {
+        return this.prevStep != null && this.prevStep == providedStep ? (I) providedResult : null;
+    }
+
+    protected boolean isPrevStepName(final String name) {
+        return this.prevStep != null && this.prevStep.name.equals(name);
+    }
+
+    private void collectStepIds(final Map<AbstractStep<?, ?>, String> stepIds, final Set<String> usedIds) {
+        if (stepIds.containsKey(this)) {
+            return;
+        }
+        String id = this.name;
+        for (int i = 2; !usedIds.add(id); i++) {
+            id = this.name + "#" + i;
+        }
+        stepIds.put(this, id);
+        for (AbstractStep<?, ?> prevStep : this.getPrevSteps()) {
+            prevStep.collectStepIds(stepIds, usedIds);
+        }
+    }
+
+    private void flattenJson(final JsonObject json, final Map<AbstractStep<?, ?>, String> stepIds, final JsonObject results) {
+        results.add(stepIds.get(this), json);
+        for (AbstractStep<?, ?> prevStep : this.getPrevSteps()) {
+            final String prevStepId = stepIds.get(prevStep);
+            final JsonElement prevJson = json.get(prevStep.name);
+            if (prevJson != null && prevJson.isJsonObject()) {
+                if (!results.has(prevStepId)) {
+                    prevStep.flattenJson(prevJson.getAsJsonObject(), stepIds, results);
+                }
+                json.addProperty(prevStep.name, prevStepId);
+            }
+        }
+    }
+
+    /**
+     * Creates the json written by {@link #toJson(StepResult)} from the flat json. Results which are used by multiple steps are only contained once, like toJson removes them as duplicates.
+     */
+    private JsonObject unflattenJson(final JsonObject results, final Map<AbstractStep<?, ?>, String> stepIds, final Set<AbstractStep<?, ?>> unflattenedSteps) {
+        final JsonObject flatJson = results.getAsJsonObject(stepIds.get(this));
+        if (flatJson == null) {
+            throw new IllegalArgumentException("Missing result of step " + stepIds.get(this));
+        }
+        unflattenedSteps.add(this);
+        final JsonObject json = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : flatJson.entrySet()) {
+            final AbstractStep<?, ?> prevStep = this.findPrevStep(entry.getKey());
+            if (prevStep != null && entry.getValue().isJsonPrimitive()) {
+                if (!unflattenedSteps.contains(prevStep)) {
+                    json.add(entry.getKey(), prevStep.unflattenJson(results, stepIds, unflattenedSteps));
+                }
+            } else {
+                json.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return json;
+    }
+
+    private JsonObject getParentJson(JsonObject json, final AbstractStep<?, ?> step) {
+        AbstractStep<?, ?> currentStep = this;
+        while (currentStep.prevStep != null && currentStep.prevStep != step) {
+            json = json.getAsJsonObject(currentStep.prevStep.name);
+            if (json == null) {
+                return null;
+            }
+            currentStep = currentStep.prevStep;
+        }
+        return currentStep.prevStep == step ? json : null;
+    }
+
     public abstract static class StepResult<P extends StepResult<?>> {
 
         protected abstract P prevResult();
@@ -56,6 +509,24 @@ public abstract class AbstractStep<I extends AbstractStep.StepResult<?>, O exten
             return true;
         }
 
+        /**
+         * @param refreshAheadMs The time span in milliseconds
+         * @return True if the result is expired or expires within the given time span
+         */
+        public boolean isExpired(final long refreshAheadMs) {
+            return this.isExpired() || this.getExpireTimeMs() - refreshAheadMs <= System.currentTimeMillis();
+        }
+
+        /**
+         * Gets the time at which this result has to be refreshed. Results which don't expire on their own are fetched again whenever the chain is refreshed, so they return the expire time of the results they depend on.
+         *
+         * @return The expire time in milliseconds or Long.MAX_VALUE if the result never expires
+         */
+        public long getExpireTimeMs() {
+            final P prevResult = this.prevResult();
+            return prevResult != null ? prevResult.getExpireTimeMs() : Long.MAX_VALUE;
+        }
+
     }
 
     public abstract static class FirstStepResult extends StepResult<StepResult<?>> {
@@ -79,6 +550,11 @@ public abstract class AbstractStep<I extends AbstractStep.StepResult<?>, O exten
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public long getExpireTimeMs() {
+            throw new UnsupportedOperationException();
+        }
+
     }
 
 }
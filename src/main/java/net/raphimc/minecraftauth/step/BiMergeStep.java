@@ -17,8 +17,19 @@
  */
 package net.raphimc.minecraftauth.step;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.SneakyThrows;
 import net.lenni0451.commons.httpclient.HttpClient;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
 public abstract class BiMergeStep<I1 extends AbstractStep.StepResult<?>, I2 extends AbstractStep.StepResult<?>, O extends BiMergeStep.StepResult<I1, I2>> extends AbstractStep<I1, O> {
 
     protected final AbstractStep<?, I2> prevStep2;
@@ -37,16 +48,28 @@ public abstract class BiMergeStep<I1 extends AbstractStep.StepResult<?>, I2 exte
     public abstract O applyStep(final HttpClient httpClient, final I1 prevResult1, final I2 prevResult2) throws Exception;
 
     @Override
-    public O refresh(final HttpClient httpClient, final O result) throws Exception {
-        if (!result.isExpired()) {
-            return result;
-        }
-
-        final I1 prevResult1 = this.prevStep.refresh(httpClient, result.prevResult());
-        final I2 prevResult2 = this.prevStep2 != null ? this.prevStep2.refresh(httpClient, result.prevResult2()) : null;
+    protected O doRefresh(final HttpClient httpClient, final O result, final long refreshAheadMs) throws Exception {
+        final I1 prevResult1 = this.prevStep.refresh(httpClient, result.prevResult(), refreshAheadMs);
+        final I2 prevResult2 = this.prevStep2 != null ? this.prevStep2.refresh(httpClient, result.prevResult2(), refreshAheadMs) : null;
         return this.applyStep(httpClient, prevResult1, prevResult2);
     }
 
+    @Override
+    protected RefreshPlan doPlanRefresh(final O result, final long refreshAheadMs) {
+        final RefreshPlan prevPlan1 = this.prevStep.planRefresh(result.prevResult(), refreshAheadMs);
+        final RefreshPlan prevPlan2 = this.prevStep2 != null ? this.prevStep2.planRefresh(result.prevResult2(), refreshAheadMs) : RefreshPlan.EMPTY;
+        return prevPlan1.then(prevPlan2).then(this);
+    }
+
+    @Override
+    protected void collectRequestUrls(final Set<String> requestUrls) {
+        this.prevStep.collectRequestUrls(requestUrls);
+        if (this.prevStep2 != null) {
+            this.prevStep2.collectRequestUrls(requestUrls);
+        }
+        requestUrls.addAll(this.getRequestUrls());
+    }
+
     @Override
     public O getFromInput(final HttpClient httpClient, final InitialInput input) throws Exception {
         final I1 prevResult1 = this.prevStep.getFromInput(httpClient, input);
@@ -54,6 +77,64 @@ public abstract class BiMergeStep<I1 extends AbstractStep.StepResult<?>, I2 exte
         return this.applyStep(httpClient, prevResult1, prevResult2);
     }
 
+    @Override
+    public CompletableFuture<O> applyStepAsync(final HttpClient httpClient, final I1 prevResult, final Executor executor) {
+        return this.applyStepAsync(httpClient, prevResult, null, executor);
+    }
+
+    public CompletableFuture<O> applyStepAsync(final HttpClient httpClient, final I1 prevResult1, final I2 prevResult2, final Executor executor) {
+        return CompletableFuture.supplyAsync(new Supplier<O>() {
+            @Override
+            @SneakyThrows
+            public O get() {
+                return BiMergeStep.this.applyStep(httpClient, prevResult1, prevResult2);
+            }
+        }, executor);
+    }
+
+    @Override
+    protected CompletableFuture<O> doRefreshAsync(final HttpClient httpClient, final O result, final Executor executor, final boolean parallel) {
+        final CompletableFuture<I1> prevResult1Future = this.prevStep.refreshAsync(httpClient, result.prevResult(), executor, parallel);
+        final CompletableFuture<I2> prevResult2Future = this.prevStep2 != null ? startAfter(prevResult1Future, () -> this.prevStep2.refreshAsync(httpClient, result.prevResult2(), executor, parallel), parallel) : CompletableFuture.completedFuture(null);
+        return prevResult1Future.thenCompose(prevResult1 -> prevResult2Future.thenCompose(prevResult2 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, executor)));
+    }
+
+    @Override
+    public CompletableFuture<O> getFromInputAsync(final HttpClient httpClient, final InitialInput input, final Executor executor, final boolean parallel) {
+        final CompletableFuture<I1> prevResult1Future = this.prevStep.getFromInputAsync(httpClient, input, executor, parallel);
+        final CompletableFuture<I2> prevResult2Future = this.prevStep2 != null ? startAfter(prevResult1Future, () -> this.prevStep2.getFromInputAsync(httpClient, input, executor, parallel), parallel) : CompletableFuture.completedFuture(null);
+        return prevResult1Future.thenCompose(prevResult1 -> prevResult2Future.thenCompose(prevResult2 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, executor)));
+    }
+
+    protected void writePrevJson2(final JsonWriter writer, final I2 prevResult2) throws IOException {
+        if (this.prevStep2 != null) {
+            writer.name(this.prevStep2.name);
+            this.prevStep2.writeJson(writer, prevResult2, null);
+        }
+    }
+
+    protected I2 readPrevJson2(final JsonReader reader) throws IOException {
+        return this.prevStep2.readJson(reader, null, null);
+    }
+
+    protected boolean isPrevStep2Name(final String name) {
+        return this.prevStep2 != null && this.prevStep2.name.equals(name);
+    }
+
+    @Override
+    protected AbstractStep<?, ?> findPrevStep(final String name) {
+        return this.isPrevStep2Name(name) ? this.prevStep2 : super.findPrevStep(name);
+    }
+
+    @Override
+    protected List<AbstractStep<?, ?>> getPrevSteps() {
+        final List<AbstractStep<?, ?>> prevSteps = new ArrayList<>(super.getPrevSteps());
+        if (this.prevStep2 != null) {
+            prevSteps.add(this.prevStep2);
+        }
+        return prevSteps;
+    }
+
     public abstract static class StepResult<P1 extends AbstractStep.StepResult<?>, P2 extends AbstractStep.StepResult<?>> extends AbstractStep.StepResult<P1> {
 
         protected abstract P2 prevResult2();
@@ -63,6 +144,11 @@ public abstract class BiMergeStep<I1 extends AbstractStep.StepResult<?>, I2 exte
             return super.isExpired() || (this.prevResult2() != null && this.prevResult2().isExpired());
         }
 
+        @Override
+        public long getExpireTimeMs() {
+            return Math.min(super.getExpireTimeMs(), this.prevResult2() != null ? this.prevResult2().getExpireTimeMs() : Long.MAX_VALUE);
+        }
+
     }
 
 }
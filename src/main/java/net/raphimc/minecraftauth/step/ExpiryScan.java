@@ -0,0 +1,56 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.step;
+
+import lombok.Value;
+
+/**
+ * The earliest expire time in a serialized token chain, found by {@link AbstractStep#scanExpiry(java.io.Reader)} without creating any step results.
+ */
+@Value
+public class ExpiryScan {
+
+    public static final ExpiryScan NEVER = new ExpiryScan(null, Long.MAX_VALUE);
+
+    /**
+     * The step whose result expires first or null if no result in the chain expires
+     */
+    AbstractStep<?, ?> step;
+    long expireTimeMs;
+
+    public String getStepName() {
+        return this.step != null ? this.step.name : null;
+    }
+
+    public boolean isExpired() {
+        return this.expireTimeMs <= System.currentTimeMillis();
+    }
+
+    /**
+     * @param refreshAheadMs The time span in milliseconds
+     * @return True if the chain is expired or expires within the given time span
+     */
+    public boolean isExpired(final long refreshAheadMs) {
+        return this.expireTimeMs - refreshAheadMs <= System.currentTimeMillis();
+    }
+
+    ExpiryScan earliest(final AbstractStep<?, ?> step, final long expireTimeMs) {
+        return expireTimeMs < this.expireTimeMs ? new ExpiryScan(step, expireTimeMs) : this;
+    }
+
+}
@@ -20,6 +20,9 @@ package net.raphimc.minecraftauth.step;
 import com.google.gson.JsonObject;
 import net.lenni0451.commons.httpclient.HttpClient;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public abstract class InitialPreparationStep<I extends AbstractStep.InitialInput, O extends AbstractStep.InitialInput> extends AbstractStep<I, O> {
 
     public InitialPreparationStep(final String name) {
@@ -27,7 +30,19 @@ public abstract class InitialPreparationStep<I extends AbstractStep.InitialInput
     }
 
     @Override
-    public final O refresh(final HttpClient httpClient, final O result) {
+    public final O refresh(final HttpClient httpClient, final O result, final long refreshAheadMs) {
+        throw new UnsupportedOperationException("Cannot refresh initial steps");
+    }
+
+    @Override
+    public final CompletableFuture<O> refreshAsync(final HttpClient httpClient, final O result, final Executor executor, final boolean parallel) {
+        final CompletableFuture<O> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException("Cannot refresh initial steps"));
+        return future;
+    }
+
+    @Override
+    public final RefreshPlan planRefresh(final O result, final long refreshAheadMs) {
         throw new UnsupportedOperationException("Cannot refresh initial steps");
     }
 
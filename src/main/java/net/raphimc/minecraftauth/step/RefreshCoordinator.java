@@ -0,0 +1,118 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.step;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure that a step result is only refreshed once at a time.<br>
+ * Concurrent refreshes of the same result (compared by identity) wait for the refresh which is already in progress instead of sending their own requests.
+ */
+public class RefreshCoordinator {
+
+    private final Map<AbstractStep.StepResult<?>, CompletableFuture<?>> inFlightRefreshes = new IdentityHashMap<>();
+
+    public <O extends AbstractStep.StepResult<?>> O refresh(final O result, final Callable<O> refresher) throws Exception {
+        final CompletableFuture<O> future = new CompletableFuture<>();
+        final CompletableFuture<O> inFlightRefresh = this.register(result, future);
+        if (inFlightRefresh != null) {
+            try {
+                return inFlightRefresh.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            final O refreshedResult = refresher.call();
+            this.unregister(result, future);
+            future.complete(refreshedResult);
+            return refreshedResult;
+        } catch (Throwable e) {
+            this.unregister(result, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public <O extends AbstractStep.StepResult<?>> CompletableFuture<O> refreshAsync(final O result, final Supplier<CompletableFuture<O>> refresher) {
+        final CompletableFuture<O> future = new CompletableFuture<>();
+        final CompletableFuture<O> inFlightRefresh = this.register(result, future);
+        if (inFlightRefresh != null) {
+            return inFlightRefresh.thenApply(Function.identity());
+        }
+
+        CompletableFuture<O> refreshFuture;
+        try {
+            refreshFuture = refresher.get();
+        } catch (Throwable e) {
+            refreshFuture = new CompletableFuture<>();
+            refreshFuture.completeExceptionally(e);
+        }
+        refreshFuture.whenComplete((refreshedResult, throwable) -> {
+            this.unregister(result, future);
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(refreshedResult);
+            }
+        });
+        return future.thenApply(Function.identity()); // Every caller gets its own future, so that completing or cancelling it doesn't affect the others
+    }
+
+    public int getInFlightRefreshCount() {
+        synchronized (this.inFlightRefreshes) {
+            return this.inFlightRefreshes.size();
+        }
+    }
+
+    private <O extends AbstractStep.StepResult<?>> CompletableFuture<O> register(final O result, final CompletableFuture<O> future) {
+        synchronized (this.inFlightRefreshes) {
+            final CompletableFuture<?> inFlightRefresh = this.inFlightRefreshes.get(result);
+            if (inFlightRefresh != null) {
+                return (CompletableFuture<O>) inFlightRefresh;
+            }
+
+            this.inFlightRefreshes.put(result, future);
+            return null;
+        }
+    }
+
+    private void unregister(final AbstractStep.StepResult<?> result, final CompletableFuture<?> future) {
+        synchronized (this.inFlightRefreshes) {
+            this.inFlightRefreshes.remove(result, future);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.step;
+
+import lombok.Value;
+
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Describes which steps a refresh would execute and which requests they would send, without executing anything.
+ */
+public class RefreshPlan {
+
+    public static final RefreshPlan EMPTY = new RefreshPlan(Collections.emptyList());
+
+    private final List<Entry> entries;
+
+    private RefreshPlan(final List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public RefreshPlan then(final AbstractStep<?, ?> step) {
+        return this.then(step, step.getRequestUrls());
+    }
+
+    public RefreshPlan then(final AbstractStep<?, ?> step, final List<String> requestUrls) {
+        final List<Entry> entries = new ArrayList<>(this.entries);
+        entries.add(new Entry(step, Collections.unmodifiableList(new ArrayList<>(requestUrls))));
+        return new RefreshPlan(Collections.unmodifiableList(entries));
+    }
+
+    public RefreshPlan then(final RefreshPlan plan) {
+        if (plan.isEmpty()) {
+            return this;
+        } else if (this.isEmpty()) {
+            return plan;
+        }
+
+        final List<Entry> entries = new ArrayList<>(this.entries);
+        entries.addAll(plan.entries);
+        return new RefreshPlan(Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * @return The steps which would be executed in execution order
+     */
+    public List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    public boolean isEmpty() {
+        return this.entries.isEmpty();
+    }
+
+    /**
+     * @return The amount of requests which would be sent
+     */
+    public int getRequestCount() {
+        int requestCount = 0;
+        for (Entry entry : this.entries) {
+            requestCount += entry.requestUrls.size();
+        }
+        return requestCount;
+    }
+
+    /**
+     * @return The hosts which would be contacted
+     */
+    public Set<String> getHosts() {
+        final Set<String> hosts = new LinkedHashSet<>();
+        for (Entry entry : this.entries) {
+            for (String requestUrl : entry.requestUrls) {
+                hosts.add(URI.create(requestUrl).getHost());
+            }
+        }
+        return Collections.unmodifiableSet(hosts);
+    }
+
+    @Override
+    public String toString() {
+        final StringJoiner steps = new StringJoiner(", ", "[", "]");
+        for (Entry entry : this.entries) {
+            steps.add(entry.step.name);
+        }
+        return "RefreshPlan(steps=" + steps + ", requestCount=" + this.getRequestCount() + ", hosts=" + this.getHosts() + ")";
+    }
+
+    @Value
+    public static class Entry {
+
+        AbstractStep<?, ?> step;
+        List<String> requestUrls;
+
+    }
+
+}
@@ -18,11 +18,17 @@
 package net.raphimc.minecraftauth.step;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import net.lenni0451.commons.httpclient.HttpClient;
+import net.raphimc.minecraftauth.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface SameInputStep<I1 extends AbstractStep.StepResult<?>, O extends AbstractStep.StepResult<?>> {
 
@@ -48,10 +54,10 @@ public interface SameInputStep<I1 extends AbstractStep.StepResult<?>, O extends
         return (I2) prevResult;
     }
 
-    default <I2 extends AbstractStep.StepResult<?>> I2 refreshSecondaryStepChain(final HttpClient httpClient, final I1 prevResult1, AbstractStep.StepResult<?> prevResult2, final List<AbstractStep<?, ?>> steps1UntilSameInput, final List<AbstractStep<?, ?>> steps2UntilSameInput) throws Exception {
+    default <I2 extends AbstractStep.StepResult<?>> I2 refreshSecondaryStepChain(final HttpClient httpClient, final I1 prevResult1, AbstractStep.StepResult<?> prevResult2, final List<AbstractStep<?, ?>> steps1UntilSameInput, final List<AbstractStep<?, ?>> steps2UntilSameInput, final long refreshAheadMs) throws Exception {
         int count = 1;
         while (count < steps2UntilSameInput.size()) {
-            if (prevResult2.isExpired()) {
+            if (prevResult2.isExpired(refreshAheadMs)) {
                 prevResult2 = prevResult2.prevResult();
                 count++;
             } else {
@@ -75,6 +81,104 @@ public interface SameInputStep<I1 extends AbstractStep.StepResult<?>, O extends
         return (I2) prevResult2;
     }
 
+    default RefreshPlan planSecondaryStepChainRefresh(AbstractStep.StepResult<?> prevResult2, final List<AbstractStep<?, ?>> steps2UntilSameInput, final long refreshAheadMs) {
+        int count = 1;
+        while (count < steps2UntilSameInput.size()) {
+            if (prevResult2.isExpired(refreshAheadMs)) {
+                prevResult2 = prevResult2.prevResult();
+                count++;
+            } else {
+                break;
+            }
+        }
+
+        RefreshPlan plan = RefreshPlan.EMPTY;
+        for (int i = steps2UntilSameInput.size() - count + 1; i < steps2UntilSameInput.size(); i++) {
+            plan = plan.then(steps2UntilSameInput.get(i));
+        }
+        return plan;
+    }
+
+    default <I2 extends AbstractStep.StepResult<?>> CompletableFuture<I2> applySecondaryStepChainAsync(final HttpClient httpClient, final I1 prevResult1, final List<AbstractStep<?, ?>> steps1UntilSameInput, final List<AbstractStep<?, ?>> steps2UntilSameInput, final Executor executor) {
+        return this.applySecondaryStepChainAsync(httpClient, this.getSameInputResult(prevResult1, steps1UntilSameInput), steps2UntilSameInput, executor);
+    }
+
+    default <I2 extends AbstractStep.StepResult<?>> CompletableFuture<I2> applySecondaryStepChainAsync(final HttpClient httpClient, final AbstractStep.StepResult<?> sameInputResult, final List<AbstractStep<?, ?>> steps2UntilSameInput, final Executor executor) {
+        if (steps2UntilSameInput.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return this.applyStepsAsync(httpClient, sameInputResult, steps2UntilSameInput, 1, executor);
+    }
+
+    default <I2 extends AbstractStep.StepResult<?>> CompletableFuture<I2> refreshSecondaryStepChainAsync(final HttpClient httpClient, final I1 prevResult1, final AbstractStep.StepResult<?> prevResult2, final List<AbstractStep<?, ?>> steps1UntilSameInput, final List<AbstractStep<?, ?>> steps2UntilSameInput, final Executor executor) {
+        return this.refreshSecondaryStepChainAsync(httpClient, this.getSameInputResult(prevResult1, steps1UntilSameInput), prevResult2, steps2UntilSameInput, executor);
+    }
+
+    default <I2 extends AbstractStep.StepResult<?>> CompletableFuture<I2> refreshSecondaryStepChainAsync(final HttpClient httpClient, final AbstractStep.StepResult<?> sameInputResult, AbstractStep.StepResult<?> prevResult2, final List<AbstractStep<?, ?>> steps2UntilSameInput, final Executor executor) {
+        int count = 1;
+        while (count < steps2UntilSameInput.size()) {
+            if (prevResult2.isExpired()) {
+                prevResult2 = prevResult2.prevResult();
+                count++;
+            } else {
+                break;
+            }
+        }
+
+        if (count == steps2UntilSameInput.size()) {
+            prevResult2 = sameInputResult;
+        }
+
+        return this.applyStepsAsync(httpClient, prevResult2, steps2UntilSameInput, steps2UntilSameInput.size() - count + 1, executor);
+    }
+
+    default AbstractStep.StepResult<?> getSameInputResult(final I1 prevResult1, final List<AbstractStep<?, ?>> steps1UntilSameInput) {
+        AbstractStep.StepResult<?> prevResult = prevResult1;
+        for (int i = 0; i < steps1UntilSameInput.size() - 1; i++) {
+            prevResult = prevResult.prevResult();
+        }
+
+        return prevResult;
+    }
+
+    default boolean isSameInputResultRefreshed(final I1 prevResult1, final List<AbstractStep<?, ?>> steps1UntilSameInput) {
+        AbstractStep.StepResult<?> prevResult = prevResult1;
+        for (int i = 0; i < steps1UntilSameInput.size() - 1; i++) {
+            if (!prevResult.isExpired()) {
+                return false;
+            }
+            prevResult = prevResult.prevResult();
+        }
+
+        return true;
+    }
+
+    default <O2 extends AbstractStep.StepResult<?>> CompletableFuture<O2> applyStepsAsync(final HttpClient httpClient, final AbstractStep.StepResult<?> prevResult, final List<AbstractStep<?, ?>> steps, final int startIndex, final Executor executor) {
+        CompletableFuture<AbstractStep.StepResult<?>> future = CompletableFuture.completedFuture(prevResult);
+        for (int i = startIndex; i < steps.size(); i++) {
+            final AbstractStep step = steps.get(i);
+            future = future.thenCompose(result -> (CompletableFuture<AbstractStep.StepResult<?>>) step.applyStepAsync(httpClient, result, executor));
+        }
+
+        return (CompletableFuture<O2>) (CompletableFuture<?>) future;
+    }
+
+    default void writeSecondaryJson(final JsonWriter writer, final AbstractStep<?, ?> prevStep2, final AbstractStep.StepResult<?> prevResult2, final List<AbstractStep<?, ?>> steps2UntilSameInput) throws IOException {
+        if (prevStep2 != null) {
+            writer.name(prevStep2.name);
+            ((AbstractStep) prevStep2).writeJson(writer, prevResult2, steps2UntilSameInput.get(0));
+        }
+    }
+
+    default <I2 extends AbstractStep.StepResult<?>> I2 readSecondaryJson(final JsonReader reader, final AbstractStep<?, I2> prevStep2, final I1 prevResult1, final List<AbstractStep<?, ?>> steps1UntilSameInput, final List<AbstractStep<?, ?>> steps2UntilSameInput) throws IOException {
+        return prevStep2.readJson(reader, steps2UntilSameInput.get(0), this.getSameInputResult(prevResult1, steps1UntilSameInput));
+    }
+
+    default <I2 extends AbstractStep.StepResult<?>> I2 fromSecondaryJson(final JsonObject json, final AbstractStep<?, I2> prevStep2, final I1 prevResult1, final List<AbstractStep<?, ?>> steps1UntilSameInput, final List<AbstractStep<?, ?>> steps2UntilSameInput) {
+        return prevStep2.fromJson(json, steps2UntilSameInput.get(0), this.getSameInputResult(prevResult1, steps1UntilSameInput));
+    }
+
     default void removeDuplicateStepResultsFromJson(final JsonObject json, final List<AbstractStep<?, ?>> steps2UntilSameInput) {
         if (!steps2UntilSameInput.isEmpty()) {
             JsonObject resultJson = json;
@@ -113,6 +217,33 @@ public interface SameInputStep<I1 extends AbstractStep.StepResult<?>, O extends
         }
     }
 
+    /**
+     * Like {@link #insertDuplicateStepResultsIntoJson(JsonObject, List, List)}, but leaves the given json unchanged. Only the objects on the path to the inserted result are copied.
+     *
+     * @return The json containing the duplicate step results
+     */
+    default JsonObject copyWithDuplicateStepResults(final JsonObject json, final List<AbstractStep<?, ?>> steps1UntilSameInput, final List<AbstractStep<?, ?>> steps2UntilSameInput) {
+        if (steps2UntilSameInput.isEmpty()) {
+            return json;
+        }
+
+        final JsonObject copy = JsonUtil.shallowCopy(json);
+        JsonObject step2Json = copy;
+        for (int i = steps2UntilSameInput.size() - 1; i > 0; i--) {
+            final String name = steps2UntilSameInput.get(i).name;
+            final JsonObject prevJson = JsonUtil.shallowCopy(step2Json.getAsJsonObject(name));
+            step2Json.add(name, prevJson);
+            step2Json = prevJson;
+        }
+
+        JsonObject step1Json = json;
+        for (int i = steps1UntilSameInput.size() - 1; i >= 0; i--) {
+            step1Json = step1Json.getAsJsonObject(steps1UntilSameInput.get(i).name);
+        }
+        step2Json.add(steps2UntilSameInput.get(0).name, step1Json);
+        return copy;
+    }
+
     default List<AbstractStep<?, ?>> findCommonStep(final AbstractStep<?, ?> step1, final AbstractStep<?, ?> step2) {
         final List<AbstractStep<?, ?>> stepsUntilSameInput = new ArrayList<>();
 
@@ -18,10 +18,16 @@
 package net.raphimc.minecraftauth.step;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import net.lenni0451.commons.httpclient.HttpClient;
+import net.raphimc.minecraftauth.util.JsonUtil;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public abstract class SameInputTriMergeStep<I1 extends AbstractStep.StepResult<?>, I2 extends AbstractStep.StepResult<?>, I3 extends AbstractStep.StepResult<?>, O extends TriMergeStep.StepResult<I1, I2, I3>> extends TriMergeStep<I1, I2, I3, O> implements SameInputStep<I1, O> {
 
@@ -47,17 +53,21 @@ public abstract class SameInputTriMergeStep<I1 extends AbstractStep.StepResult<?
     }
 
     @Override
-    public O refresh(final HttpClient httpClient, final O result) throws Exception {
-        if (!result.isExpired()) {
-            return result;
-        }
-
-        final I1 prevResult1 = this.prevStep.refresh(httpClient, result.prevResult());
-        final I2 prevResult2 = this.refreshSecondaryStepChain(httpClient, prevResult1, result.prevResult2(), this.steps1UntilSameInput, this.steps2UntilSameInput);
-        final I3 prevResult3 = this.refreshSecondaryStepChain(httpClient, prevResult1, result.prevResult3(), this.steps1UntilSameInput, this.steps3UntilSameInput);
+    protected O doRefresh(final HttpClient httpClient, final O result, final long refreshAheadMs) throws Exception {
+        final I1 prevResult1 = this.prevStep.refresh(httpClient, result.prevResult(), refreshAheadMs);
+        final I2 prevResult2 = this.refreshSecondaryStepChain(httpClient, prevResult1, result.prevResult2(), this.steps1UntilSameInput, this.steps2UntilSameInput, refreshAheadMs);
+        final I3 prevResult3 = this.refreshSecondaryStepChain(httpClient, prevResult1, result.prevResult3(), this.steps1UntilSameInput, this.steps3UntilSameInput, refreshAheadMs);
         return this.applyStep(httpClient, prevResult1, prevResult2, prevResult3);
     }
 
+    @Override
+    protected RefreshPlan doPlanRefresh(final O result, final long refreshAheadMs) {
+        final RefreshPlan prevPlan1 = this.prevStep.planRefresh(result.prevResult(), refreshAheadMs);
+        final RefreshPlan prevPlan2 = this.planSecondaryStepChainRefresh(result.prevResult2(), this.steps2UntilSameInput, refreshAheadMs);
+        final RefreshPlan prevPlan3 = this.planSecondaryStepChainRefresh(result.prevResult3(), this.steps3UntilSameInput, refreshAheadMs);
+        return prevPlan1.then(prevPlan2).then(prevPlan3).then(this);
+    }
+
     @Override
     public O getFromInput(final HttpClient httpClient, final InitialInput input) throws Exception {
         final I1 prevResult1 = this.prevStep.getFromInput(httpClient, input);
@@ -66,6 +76,45 @@ public abstract class SameInputTriMergeStep<I1 extends AbstractStep.StepResult<?
         return this.applyStep(httpClient, prevResult1, prevResult2, prevResult3);
     }
 
+    @Override
+    protected CompletableFuture<O> doRefreshAsync(final HttpClient httpClient, final O result, final Executor executor, final boolean parallel) {
+        if (!parallel || this.steps1UntilSameInput.isEmpty()) {
+            return this.prevStep.refreshAsync(httpClient, result.prevResult(), executor, parallel).thenCompose(prevResult1 -> this.<I2>refreshSecondaryStepChainAsync(httpClient, prevResult1, result.prevResult2(), this.steps1UntilSameInput, this.steps2UntilSameInput, executor)
+                    .thenCompose(prevResult2 -> this.<I3>refreshSecondaryStepChainAsync(httpClient, prevResult1, result.prevResult3(), this.steps1UntilSameInput, this.steps3UntilSameInput, executor)
+                            .thenCompose(prevResult3 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, prevResult3, executor))));
+        }
+
+        final CompletableFuture<AbstractStep.StepResult<?>> sameInputResultFuture;
+        final CompletableFuture<I1> prevResult1Future;
+        if (this.isSameInputResultRefreshed(result.prevResult(), this.steps1UntilSameInput)) {
+            final AbstractStep sameInputStep = this.steps1UntilSameInput.get(0);
+            sameInputResultFuture = sameInputStep.refreshAsync(httpClient, this.getSameInputResult(result.prevResult(), this.steps1UntilSameInput), executor, true);
+            prevResult1Future = sameInputResultFuture.thenCompose(sameInputResult -> this.<I1>applyStepsAsync(httpClient, sameInputResult, this.steps1UntilSameInput, 1, executor));
+        } else {
+            sameInputResultFuture = CompletableFuture.completedFuture(this.getSameInputResult(result.prevResult(), this.steps1UntilSameInput));
+            prevResult1Future = this.prevStep.refreshAsync(httpClient, result.prevResult(), executor, true);
+        }
+        final CompletableFuture<I2> prevResult2Future = sameInputResultFuture.thenCompose(sameInputResult -> this.<I2>refreshSecondaryStepChainAsync(httpClient, sameInputResult, result.prevResult2(), this.steps2UntilSameInput, executor));
+        final CompletableFuture<I3> prevResult3Future = sameInputResultFuture.thenCompose(sameInputResult -> this.<I3>refreshSecondaryStepChainAsync(httpClient, sameInputResult, result.prevResult3(), this.steps3UntilSameInput, executor));
+        return prevResult1Future.thenCompose(prevResult1 -> prevResult2Future.thenCompose(prevResult2 -> prevResult3Future.thenCompose(prevResult3 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, prevResult3, executor))));
+    }
+
+    @Override
+    public CompletableFuture<O> getFromInputAsync(final HttpClient httpClient, final InitialInput input, final Executor executor, final boolean parallel) {
+        if (!parallel || this.steps1UntilSameInput.isEmpty()) {
+            return this.prevStep.getFromInputAsync(httpClient, input, executor, parallel).thenCompose(prevResult1 -> this.<I2>applySecondaryStepChainAsync(httpClient, prevResult1, this.steps1UntilSameInput, this.steps2UntilSameInput, executor)
+                    .thenCompose(prevResult2 -> this.<I3>applySecondaryStepChainAsync(httpClient, prevResult1, this.steps1UntilSameInput, this.steps3UntilSameInput, executor)
+                            .thenCompose(prevResult3 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, prevResult3, executor))));
+        }
+
+        final AbstractStep sameInputStep = this.steps1UntilSameInput.get(0);
+        final CompletableFuture<AbstractStep.StepResult<?>> sameInputResultFuture = sameInputStep.getFromInputAsync(httpClient, input, executor, true);
+        final CompletableFuture<I1> prevResult1Future = sameInputResultFuture.thenCompose(sameInputResult -> this.<I1>applyStepsAsync(httpClient, sameInputResult, this.steps1UntilSameInput, 1, executor));
+        final CompletableFuture<I2> prevResult2Future = sameInputResultFuture.thenCompose(sameInputResult -> this.<I2>applySecondaryStepChainAsync(httpClient, sameInputResult, this.steps2UntilSameInput, executor));
+        final CompletableFuture<I3> prevResult3Future = sameInputResultFuture.thenCompose(sameInputResult -> this.<I3>applySecondaryStepChainAsync(httpClient, sameInputResult, this.steps3UntilSameInput, executor));
+        return prevResult1Future.thenCompose(prevResult1 -> prevResult2Future.thenCompose(prevResult2 -> prevResult3Future.thenCompose(prevResult3 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, prevResult3, executor))));
+    }
+
     @Override
     public JsonObject toJson(final O result) {
         final JsonObject json = this.toRawJson(result);
@@ -76,9 +125,66 @@ public abstract class SameInputTriMergeStep<I1 extends AbstractStep.StepResult<?
 
     @Override
     public O fromJson(final JsonObject json) {
-        this.insertDuplicateStepResultsIntoJson(json, this.steps1UntilSameInput, this.steps2UntilSameInput);
-        this.insertDuplicateStepResultsIntoJson(json, this.steps1UntilSameInput, this.steps3UntilSameInput);
-        return this.fromRawJson(json);
+        final JsonObject json2 = this.copyWithDuplicateStepResults(json, this.steps1UntilSameInput, this.steps2UntilSameInput);
+        return this.fromRawJson(this.copyWithDuplicateStepResults(json2, this.steps1UntilSameInput, this.steps3UntilSameInput));
+    }
+
+    /**
+     * Writes the results of the previous steps like {@link #toJson(StepResult)} does for subclasses which don't write own fields in {@link #toRawJson(StepResult)}
+     */
+    protected void writeMergedJson(final JsonWriter writer, final O result, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        this.writePrevJson(writer, result.prevResult(), omittedStep);
+        this.writeSecondaryJson(writer, this.prevStep2, result.prevResult2(), this.steps2UntilSameInput);
+        this.writeSecondaryJson(writer, this.prevStep3, result.prevResult3(), this.steps3UntilSameInput);
+        writer.endObject();
+    }
+
+    /**
+     * Reads the results of the previous steps written by {@link #writeMergedJson(JsonWriter, StepResult, AbstractStep)}
+     */
+    protected O readMergedJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult, final ResultFactory<I1, I2, I3, O> resultFactory) throws IOException {
+        I1 prevResult1 = this.getProvidedPrevResult(providedStep, providedResult);
+        I2 prevResult2 = null;
+        I3 prevResult3 = null;
+        JsonObject prevJson2 = null;
+        JsonObject prevJson3 = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                prevResult1 = this.readPrevJson(reader, providedStep, providedResult);
+            } else if (this.isPrevStep2Name(name)) {
+                if (prevResult1 != null) {
+                    prevResult2 = this.readSecondaryJson(reader, this.prevStep2, prevResult1, this.steps1UntilSameInput, this.steps2UntilSameInput);
+                } else { // The duplicate result is only known once the first chain has been read
+                    prevJson2 = (JsonObject) JsonUtil.parseReader(reader);
+                }
+            } else if (this.isPrevStep3Name(name)) {
+                if (prevResult1 != null) {
+                    prevResult3 = this.readSecondaryJson(reader, this.prevStep3, prevResult1, this.steps1UntilSameInput, this.steps3UntilSameInput);
+                } else {
+                    prevJson3 = (JsonObject) JsonUtil.parseReader(reader);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (prevJson2 != null) {
+            prevResult2 = this.fromSecondaryJson(prevJson2, this.prevStep2, prevResult1, this.steps1UntilSameInput, this.steps2UntilSameInput);
+        }
+        if (prevJson3 != null) {
+            prevResult3 = this.fromSecondaryJson(prevJson3, this.prevStep3, prevResult1, this.steps1UntilSameInput, this.steps3UntilSameInput);
+        }
+        return resultFactory.create(prevResult1, prevResult2, prevResult3);
+    }
+
+    @FunctionalInterface
+    protected interface ResultFactory<I1, I2, I3, O> {
+
+        O create(final I1 prevResult1, final I2 prevResult2, final I3 prevResult3);
+
     }
 
 }
@@ -17,8 +17,16 @@
  */
 package net.raphimc.minecraftauth.step;
 
+import lombok.SneakyThrows;
 import net.lenni0451.commons.httpclient.HttpClient;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
 public abstract class TriMergeStep<I1 extends AbstractStep.StepResult<?>, I2 extends AbstractStep.StepResult<?>, I3 extends AbstractStep.StepResult<?>, O extends TriMergeStep.StepResult<I1, I2, I3>> extends BiMergeStep<I1, I2, O> {
 
     protected final AbstractStep<?, I3> prevStep3;
@@ -37,17 +45,33 @@ public abstract class TriMergeStep<I1 extends AbstractStep.StepResult<?>, I2 ext
     public abstract O applyStep(final HttpClient httpClient, final I1 prevResult1, final I2 prevResult2, final I3 prevResult3) throws Exception;
 
     @Override
-    public O refresh(final HttpClient httpClient, final O result) throws Exception {
-        if (!result.isExpired()) {
-            return result;
-        }
-
-        final I1 prevResult1 = this.prevStep.refresh(httpClient, result.prevResult());
-        final I2 prevResult2 = this.prevStep2 != null ? this.prevStep2.refresh(httpClient, result.prevResult2()) : null;
-        final I3 prevResult3 = this.prevStep3 != null ? this.prevStep3.refresh(httpClient, result.prevResult3()) : null;
+    protected O doRefresh(final HttpClient httpClient, final O result, final long refreshAheadMs) throws Exception {
+        final I1 prevResult1 = this.prevStep.refresh(httpClient, result.prevResult(), refreshAheadMs);
+        final I2 prevResult2 = this.prevStep2 != null ? this.prevStep2.refresh(httpClient, result.prevResult2(), refreshAheadMs) : null;
+        final I3 prevResult3 = this.prevStep3 != null ? this.prevStep3.refresh(httpClient, result.prevResult3(), refreshAheadMs) : null;
         return this.applyStep(httpClient, prevResult1, prevResult2, prevResult3);
     }
 
+    @Override
+    protected RefreshPlan doPlanRefresh(final O result, final long refreshAheadMs) {
+        final RefreshPlan prevPlan1 = this.prevStep.planRefresh(result.prevResult(), refreshAheadMs);
+        final RefreshPlan prevPlan2 = this.prevStep2 != null ? this.prevStep2.planRefresh(result.prevResult2(), refreshAheadMs) : RefreshPlan.EMPTY;
+        final RefreshPlan prevPlan3 = this.prevStep3 != null ? this.prevStep3.planRefresh(result.prevResult3(), refreshAheadMs) : RefreshPlan.EMPTY;
+        return prevPlan1.then(prevPlan2).then(prevPlan3).then(this);
+    }
+
+    @Override
+    protected void collectRequestUrls(final Set<String> requestUrls) {
+        this.prevStep.collectRequestUrls(requestUrls);
+        if (this.prevStep2 != null) {
+            this.prevStep2.collectRequestUrls(requestUrls);
+        }
+        if (this.prevStep3 != null) {
+            this.prevStep3.collectRequestUrls(requestUrls);
+        }
+        requestUrls.addAll(this.getRequestUrls());
+    }
+
     @Override
     public O getFromInput(final HttpClient httpClient, final InitialInput input) throws Exception {
         final I1 prevResult1 = this.prevStep.getFromInput(httpClient, input);
@@ -56,6 +80,55 @@ public abstract class TriMergeStep<I1 extends AbstractStep.StepResult<?>, I2 ext
         return this.applyStep(httpClient, prevResult1, prevResult2, prevResult3);
     }
 
+    @Override
+    public CompletableFuture<O> applyStepAsync(final HttpClient httpClient, final I1 prevResult1, final I2 prevResult2, final Executor executor) {
+        return this.applyStepAsync(httpClient, prevResult1, prevResult2, null, executor);
+    }
+
+    public CompletableFuture<O> applyStepAsync(final HttpClient httpClient, final I1 prevResult1, final I2 prevResult2, final I3 prevResult3, final Executor executor) {
+        return CompletableFuture.supplyAsync(new Supplier<O>() {
+            @Override
+            @SneakyThrows
+            public O get() {
+                return TriMergeStep.this.applyStep(httpClient, prevResult1, prevResult2, prevResult3);
+            }
+        }, executor);
+    }
+
+    @Override
+    protected CompletableFuture<O> doRefreshAsync(final HttpClient httpClient, final O result, final Executor executor, final boolean parallel) {
+        final CompletableFuture<I1> prevResult1Future = this.prevStep.refreshAsync(httpClient, result.prevResult(), executor, parallel);
+        final CompletableFuture<I2> prevResult2Future = this.prevStep2 != null ? startAfter(prevResult1Future, () -> this.prevStep2.refreshAsync(httpClient, result.prevResult2(), executor, parallel), parallel) : CompletableFuture.completedFuture(null);
+        final CompletableFuture<I3> prevResult3Future = this.prevStep3 != null ? startAfter(CompletableFuture.allOf(prevResult1Future, prevResult2Future), () -> this.prevStep3.refreshAsync(httpClient, result.prevResult3(), executor, parallel), parallel) : CompletableFuture.completedFuture(null);
+        return prevResult1Future.thenCompose(prevResult1 -> prevResult2Future.thenCompose(prevResult2 -> prevResult3Future.thenCompose(prevResult3 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, prevResult3, executor))));
+    }
+
+    @Override
+    public CompletableFuture<O> getFromInputAsync(final HttpClient httpClient, final InitialInput input, final Executor executor, final boolean parallel) {
+        final CompletableFuture<I1> prevResult1Future = this.prevStep.getFromInputAsync(httpClient, input, executor, parallel);
+        final CompletableFuture<I2> prevResult2Future = this.prevStep2 != null ? startAfter(prevResult1Future, () -> this.prevStep2.getFromInputAsync(httpClient, input, executor, parallel), parallel) : CompletableFuture.completedFuture(null);
+        final CompletableFuture<I3> prevResult3Future = this.prevStep3 != null ? startAfter(CompletableFuture.allOf(prevResult1Future, prevResult2Future), () -> this.prevStep3.getFromInputAsync(httpClient, input, executor, parallel), parallel) : CompletableFuture.completedFuture(null);
+        return prevResult1Future.thenCompose(prevResult1 -> prevResult2Future.thenCompose(prevResult2 -> prevResult3Future.thenCompose(prevResult3 -> this.applyStepAsync(httpClient, prevResult1, prevResult2, prevResult3, executor))));
+    }
+
+    protected boolean isPrevStep3Name(final String name) {
+        return this.prevStep3 != null && this.prevStep3.name.equals(name);
+    }
+
+    @Override
+    protected AbstractStep<?, ?> findPrevStep(final String name) {
+        return this.isPrevStep3Name(name) ? this.prevStep3 : super.findPrevStep(name);
+    }
+
+    @Override
+    protected List<AbstractStep<?, ?>> getPrevSteps() {
+        final List<AbstractStep<?, ?>> prevSteps = new ArrayList<>(super.getPrevSteps());
+        if (this.prevStep3 != null) {
+            prevSteps.add(this.prevStep3);
+        }
+        return prevSteps;
+    }
+
     public abstract static class StepResult<P1 extends AbstractStep.StepResult<?>, P2 extends AbstractStep.StepResult<?>, P3 extends AbstractStep.StepResult<?>> extends BiMergeStep.StepResult<P1, P2> {
 
         protected abstract P3 prevResult3();
@@ -65,6 +138,11 @@ public abstract class TriMergeStep<I1 extends AbstractStep.StepResult<?>, I2 ext
             return super.isExpired() || (this.prevResult3() != null && this.prevResult3().isExpired());
         }
 
+        @Override
+        public long getExpireTimeMs() {
+            return Math.min(super.getExpireTimeMs(), this.prevResult3() != null ? this.prevResult3().getExpireTimeMs() : Long.MAX_VALUE);
+        }
+
     }
 
 }
@@ -19,10 +19,13 @@ package net.raphimc.minecraftauth.step.bedrock;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.Jwts;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
 import net.lenni0451.commons.httpclient.constants.Headers;
@@ -33,13 +36,16 @@ import net.raphimc.minecraftauth.step.AbstractStep;
 import net.raphimc.minecraftauth.step.xbl.StepXblXstsToken;
 import net.raphimc.minecraftauth.util.CryptUtil;
 import net.raphimc.minecraftauth.util.JsonContent;
+import net.raphimc.minecraftauth.util.Lazy;
+import net.raphimc.minecraftauth.util.keypair.LazyKey;
 
+import java.io.IOException;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
-import java.security.spec.ECGenParameterSpec;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -55,13 +61,16 @@ public class StepMCChain extends AbstractStep<StepXblXstsToken.XblXsts<?>, StepM
         super("mcChain", (AbstractStep<?, StepXblXstsToken.XblXsts<?>>) prevStep);
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(MINECRAFT_LOGIN_URL);
+    }
+
     @Override
     public MCChain applyStep(final HttpClient httpClient, final StepXblXstsToken.XblXsts<?> xblXsts) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating with Minecraft Services...");
 
-        final KeyPairGenerator secp384r1 = KeyPairGenerator.getInstance("EC");
-        secp384r1.initialize(new ECGenParameterSpec("secp384r1"));
-        final KeyPair ecdsa384KeyPair = secp384r1.generateKeyPair();
+        final KeyPair ecdsa384KeyPair = MinecraftAuth.KEY_PAIR_SUPPLIER.getEcKeyPair("secp384r1");
         final ECPublicKey publicKey = (ECPublicKey) ecdsa384KeyPair.getPublic();
         final ECPrivateKey privateKey = (ECPrivateKey) ecdsa384KeyPair.getPrivate();
 
@@ -106,49 +115,138 @@ public class StepMCChain extends AbstractStep<StepXblXstsToken.XblXsts<?>, StepM
 
     @Override
     public MCChain fromJson(final JsonObject json) {
-        final StepXblXstsToken.XblXsts<?> xblXsts = this.prevStep != null ? this.prevStep.fromJson(json.getAsJsonObject(this.prevStep.name)) : null;
+        final JsonObject prevJson = this.prevStep != null ? json.getAsJsonObject(this.prevStep.name) : null;
         return new MCChain(
-                CryptUtil.publicKeyEcFromBase64(json.get("publicKey").getAsString()),
-                CryptUtil.privateKeyEcFromBase64(json.get("privateKey").getAsString()),
+                LazyKey.fromBase64(json.get("publicKey").getAsString(), CryptUtil::publicKeyEcFromBase64),
+                LazyKey.fromBase64(json.get("privateKey").getAsString(), CryptUtil::privateKeyEcFromBase64),
                 json.get("mojangJwt").getAsString(),
                 json.get("identityJwt").getAsString(),
                 json.get("xuid").getAsString(),
                 UUID.fromString(json.get("id").getAsString()),
                 json.get("displayName").getAsString(),
-                xblXsts
+                Lazy.of(() -> prevJson != null ? this.prevStep.fromJson(prevJson) : null)
         );
     }
 
     @Override
     public JsonObject toJson(final MCChain mcChain) {
         final JsonObject json = new JsonObject();
-        json.addProperty("publicKey", Base64.getEncoder().encodeToString(mcChain.publicKey.getEncoded()));
-        json.addProperty("privateKey", Base64.getEncoder().encodeToString(mcChain.privateKey.getEncoded()));
+        json.addProperty("publicKey", mcChain.publicKey.getBase64());
+        json.addProperty("privateKey", mcChain.privateKey.getBase64());
         json.addProperty("mojangJwt", mcChain.mojangJwt);
         json.addProperty("identityJwt", mcChain.identityJwt);
         json.addProperty("xuid", mcChain.xuid);
         json.addProperty("id", mcChain.id.toString());
         json.addProperty("displayName", mcChain.displayName);
-        if (this.prevStep != null) json.add(this.prevStep.name, this.prevStep.toJson(mcChain.xblXsts));
+        if (this.prevStep != null) json.add(this.prevStep.name, this.prevStep.toJson(mcChain.getXblXsts()));
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final MCChain mcChain, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("publicKey").value(mcChain.publicKey.getBase64());
+        writer.name("privateKey").value(mcChain.privateKey.getBase64());
+        writer.name("mojangJwt").value(mcChain.mojangJwt);
+        writer.name("identityJwt").value(mcChain.identityJwt);
+        writer.name("xuid").value(mcChain.xuid);
+        writer.name("id").value(mcChain.id.toString());
+        writer.name("displayName").value(mcChain.displayName);
+        this.writePrevJson(writer, mcChain.getXblXsts(), omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected MCChain readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        LazyKey<ECPublicKey> publicKey = null;
+        LazyKey<ECPrivateKey> privateKey = null;
+        String mojangJwt = null;
+        String identityJwt = null;
+        String xuid = null;
+        UUID id = null;
+        String displayName = null;
+        Lazy<StepXblXstsToken.XblXsts<?>> xblXsts = Lazy.value(this.getProvidedPrevResult(providedStep, providedResult));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                xblXsts = this.readPrevJsonLazily(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "publicKey":
+                    publicKey = LazyKey.fromBase64(reader.nextString(), CryptUtil::publicKeyEcFromBase64);
+                    break;
+                case "privateKey":
+                    privateKey = LazyKey.fromBase64(reader.nextString(), CryptUtil::privateKeyEcFromBase64);
+                    break;
+                case "mojangJwt":
+                    mojangJwt = reader.nextString();
+                    break;
+                case "identityJwt":
+                    identityJwt = reader.nextString();
+                    break;
+                case "xuid":
+                    xuid = reader.nextString();
+                    break;
+                case "id":
+                    id = UUID.fromString(reader.nextString());
+                    break;
+                case "displayName":
+                    displayName = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new MCChain(publicKey, privateKey, mojangJwt, identityJwt, xuid, id, displayName, xblXsts);
+    }
+
     @Value
-    @EqualsAndHashCode(callSuper = false)
+    @EqualsAndHashCode(callSuper = false, doNotUseGetters = true)
+    @ToString(doNotUseGetters = true)
     public static class MCChain extends AbstractStep.StepResult<StepXblXstsToken.XblXsts<?>> {
 
-        ECPublicKey publicKey;
-        ECPrivateKey privateKey;
+        LazyKey<ECPublicKey> publicKey;
+        LazyKey<ECPrivateKey> privateKey;
         String mojangJwt;
         String identityJwt;
         String xuid;
         UUID id;
         String displayName;
-        StepXblXstsToken.XblXsts<?> xblXsts;
+        Lazy<StepXblXstsToken.XblXsts<?>> xblXsts;
+
+        public MCChain(final ECPublicKey publicKey, final ECPrivateKey privateKey, final String mojangJwt, final String identityJwt, final String xuid, final UUID id, final String displayName, final StepXblXstsToken.XblXsts<?> xblXsts) {
+            this(LazyKey.of(publicKey), LazyKey.of(privateKey), mojangJwt, identityJwt, xuid, id, displayName, Lazy.value(xblXsts));
+        }
+
+        private MCChain(final LazyKey<ECPublicKey> publicKey, final LazyKey<ECPrivateKey> privateKey, final String mojangJwt, final String identityJwt, final String xuid, final UUID id, final String displayName, final Lazy<StepXblXstsToken.XblXsts<?>> xblXsts) {
+            this.publicKey = publicKey;
+            this.privateKey = privateKey;
+            this.mojangJwt = mojangJwt;
+            this.identityJwt = identityJwt;
+            this.xuid = xuid;
+            this.id = id;
+            this.displayName = displayName;
+            this.xblXsts = xblXsts;
+        }
+
+        public ECPublicKey getPublicKey() {
+            return this.publicKey.get();
+        }
+
+        public ECPrivateKey getPrivateKey() {
+            return this.privateKey.get();
+        }
+
+        public StepXblXstsToken.XblXsts<?> getXblXsts() {
+            return this.xblXsts.get();
+        }
 
         @Override
         protected StepXblXstsToken.XblXsts<?> prevResult() {
-            return this.xblXsts;
+            return this.xblXsts.get();
         }
 
     }
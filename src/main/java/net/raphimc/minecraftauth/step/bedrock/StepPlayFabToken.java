@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.bedrock;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -29,8 +31,11 @@ import net.raphimc.minecraftauth.step.xbl.StepXblXstsToken;
 import net.raphimc.minecraftauth.util.JsonContent;
 import net.raphimc.minecraftauth.util.MicrosoftConstants;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
 
 public class StepPlayFabToken extends AbstractStep<StepXblXstsToken.XblXsts<?>, StepPlayFabToken.PlayFabToken> {
 
@@ -40,6 +45,11 @@ public class StepPlayFabToken extends AbstractStep<StepXblXstsToken.XblXsts<?>,
         super("playFabToken", (AbstractStep<?, StepXblXstsToken.XblXsts<?>>) prevStep);
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(PLAY_FAB_URL);
+    }
+
     @Override
     public PlayFabToken applyStep(final HttpClient httpClient, final StepXblXstsToken.XblXsts<?> xblXsts) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating with PlayFab...");
@@ -111,6 +121,57 @@ public class StepPlayFabToken extends AbstractStep<StepXblXstsToken.XblXsts<?>,
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final PlayFabToken playFabToken, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("expireTimeMs").value(playFabToken.expireTimeMs);
+        writer.name("entityToken").value(playFabToken.entityToken);
+        writer.name("entityId").value(playFabToken.entityId);
+        writer.name("sessionTicket").value(playFabToken.sessionTicket);
+        writer.name("playFabId").value(playFabToken.playFabId);
+        this.writePrevJson(writer, playFabToken.xblXsts, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected PlayFabToken readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        long expireTimeMs = 0;
+        String entityToken = null;
+        String entityId = null;
+        String sessionTicket = null;
+        String playFabId = null;
+        StepXblXstsToken.XblXsts<?> xblXsts = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                xblXsts = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "expireTimeMs":
+                    expireTimeMs = reader.nextLong();
+                    break;
+                case "entityToken":
+                    entityToken = reader.nextString();
+                    break;
+                case "entityId":
+                    entityId = reader.nextString();
+                    break;
+                case "sessionTicket":
+                    sessionTicket = reader.nextString();
+                    break;
+                case "playFabId":
+                    playFabId = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new PlayFabToken(expireTimeMs, entityToken, entityId, sessionTicket, playFabId, xblXsts);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class PlayFabToken extends AbstractStep.StepResult<StepXblXstsToken.XblXsts<?>> {
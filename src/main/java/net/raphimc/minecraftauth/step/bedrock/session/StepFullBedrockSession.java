@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.bedrock.session;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -28,6 +30,8 @@ import net.raphimc.minecraftauth.step.bedrock.StepMCChain;
 import net.raphimc.minecraftauth.step.bedrock.StepPlayFabToken;
 import net.raphimc.minecraftauth.step.xbl.StepXblXstsToken;
 
+import java.io.IOException;
+
 public class StepFullBedrockSession extends SameInputTriMergeStep<StepMCChain.MCChain, StepPlayFabToken.PlayFabToken, StepXblXstsToken.XblXsts<?>, StepFullBedrockSession.FullBedrockSession> {
 
     public StepFullBedrockSession(final AbstractStep<?, StepMCChain.MCChain> prevStep1, final AbstractStep<?, StepPlayFabToken.PlayFabToken> prevStep2, final AbstractStep<?, ? extends StepXblXstsToken.XblXsts<?>> prevStep3) {
@@ -56,6 +60,16 @@ public class StepFullBedrockSession extends SameInputTriMergeStep<StepMCChain.MC
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final FullBedrockSession fullBedrockSession, final AbstractStep<?, ?> omittedStep) throws IOException {
+        this.writeMergedJson(writer, fullBedrockSession, omittedStep);
+    }
+
+    @Override
+    protected FullBedrockSession readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        return this.readMergedJson(reader, providedStep, providedResult, FullBedrockSession::new);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class FullBedrockSession extends TriMergeStep.StepResult<StepMCChain.MCChain, StepPlayFabToken.PlayFabToken, StepXblXstsToken.XblXsts<?>> {
@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.edu;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -28,6 +30,10 @@ import net.raphimc.minecraftauth.step.AbstractStep;
 import net.raphimc.minecraftauth.step.msa.StepMsaToken;
 import net.raphimc.minecraftauth.util.JsonContent;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
 public class StepEduJWT extends AbstractStep<StepMsaToken.MsaToken, StepEduJWT.EduJWT> {
 
     public static final String MINECRAFT_LOGIN_URL = "https://login.minecrafteduservices.com/v2/signin";
@@ -51,6 +57,11 @@ public class StepEduJWT extends AbstractStep<StepMsaToken.MsaToken, StepEduJWT.E
         this.platform = platform;
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(MINECRAFT_LOGIN_URL);
+    }
+
     @Override
     public EduJWT applyStep(final HttpClient httpClient, final StepMsaToken.MsaToken msaToken) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating with Minecraft Education Services...");
@@ -92,6 +103,33 @@ public class StepEduJWT extends AbstractStep<StepMsaToken.MsaToken, StepEduJWT.E
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final EduJWT eduJWT, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("jwt").value(eduJWT.jwt);
+        this.writePrevJson(writer, eduJWT.msaToken, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected EduJWT readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        String jwt = null;
+        StepMsaToken.MsaToken msaToken = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                msaToken = this.readPrevJson(reader, providedStep, providedResult);
+            } else if (name.equals("jwt")) {
+                jwt = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new EduJWT(jwt, msaToken);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class EduJWT extends AbstractStep.StepResult<StepMsaToken.MsaToken> {
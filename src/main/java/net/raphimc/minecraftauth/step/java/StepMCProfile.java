@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.java;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -27,7 +29,11 @@ import net.raphimc.minecraftauth.MinecraftAuth;
 import net.raphimc.minecraftauth.responsehandler.MinecraftResponseHandler;
 import net.raphimc.minecraftauth.step.AbstractStep;
 import net.raphimc.minecraftauth.util.UuidUtil;
+import net.raphimc.minecraftauth.util.http.RequestHedger;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 public class StepMCProfile extends AbstractStep<StepMCToken.MCToken, StepMCProfile.MCProfile> {
@@ -38,13 +44,20 @@ public class StepMCProfile extends AbstractStep<StepMCToken.MCToken, StepMCProfi
         super("mcProfile", prevStep);
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(MINECRAFT_PROFILE_URL);
+    }
+
     @Override
     public MCProfile applyStep(final HttpClient httpClient, final StepMCToken.MCToken mcToken) throws Exception {
         MinecraftAuth.LOGGER.info("Getting profile...");
 
-        final GetRequest getRequest = new GetRequest(MINECRAFT_PROFILE_URL);
-        getRequest.setHeader(Headers.AUTHORIZATION, mcToken.getTokenType() + " " + mcToken.getAccessToken());
-        final JsonObject obj = httpClient.execute(getRequest, new MinecraftResponseHandler());
+        final JsonObject obj = RequestHedger.executeGet(httpClient, () -> {
+            final GetRequest getRequest = new GetRequest(MINECRAFT_PROFILE_URL);
+            getRequest.setHeader(Headers.AUTHORIZATION, mcToken.getTokenType() + " " + mcToken.getAccessToken());
+            return getRequest;
+        }, new MinecraftResponseHandler());
 
         final MCProfile mcProfile = new MCProfile(
                 UuidUtil.fromLenientString(obj.get("id").getAsString()),
@@ -77,6 +90,47 @@ public class StepMCProfile extends AbstractStep<StepMCToken.MCToken, StepMCProfi
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final MCProfile mcProfile, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(mcProfile.id.toString());
+        writer.name("name").value(mcProfile.name);
+        writer.name("skinUrl").value(mcProfile.skinUrl);
+        this.writePrevJson(writer, mcProfile.mcToken, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected MCProfile readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        UUID id = null;
+        String name = null;
+        String skinUrl = null;
+        StepMCToken.MCToken mcToken = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String fieldName = reader.nextName();
+            if (this.isPrevStepName(fieldName)) {
+                mcToken = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (fieldName) {
+                case "id":
+                    id = UUID.fromString(reader.nextString());
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "skinUrl":
+                    skinUrl = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new MCProfile(id, name, skinUrl, mcToken);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class MCProfile extends AbstractStep.StepResult<StepMCToken.MCToken> {
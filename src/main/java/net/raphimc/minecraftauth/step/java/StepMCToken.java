@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.java;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -28,8 +30,11 @@ import net.raphimc.minecraftauth.step.AbstractStep;
 import net.raphimc.minecraftauth.step.xbl.StepXblXstsToken;
 import net.raphimc.minecraftauth.util.JsonContent;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
 
 public class StepMCToken extends AbstractStep<StepXblXstsToken.XblXsts<?>, StepMCToken.MCToken> {
 
@@ -39,6 +44,11 @@ public class StepMCToken extends AbstractStep<StepXblXstsToken.XblXsts<?>, StepM
         super("mcToken", (AbstractStep<?, StepXblXstsToken.XblXsts<?>>) prevStep);
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(MINECRAFT_LOGIN_URL);
+    }
+
     @Override
     public MCToken applyStep(final HttpClient httpClient, final StepXblXstsToken.XblXsts<?> xblXsts) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating with Minecraft Services...");
@@ -82,6 +92,47 @@ public class StepMCToken extends AbstractStep<StepXblXstsToken.XblXsts<?>, StepM
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final MCToken mcToken, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("accessToken").value(mcToken.accessToken);
+        writer.name("tokenType").value(mcToken.tokenType);
+        writer.name("expireTimeMs").value(mcToken.expireTimeMs);
+        this.writePrevJson(writer, mcToken.xblXsts, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected MCToken readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        String accessToken = null;
+        String tokenType = null;
+        long expireTimeMs = 0;
+        StepXblXstsToken.XblXsts<?> xblXsts = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                xblXsts = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "accessToken":
+                    accessToken = reader.nextString();
+                    break;
+                case "tokenType":
+                    tokenType = reader.nextString();
+                    break;
+                case "expireTimeMs":
+                    expireTimeMs = reader.nextLong();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new MCToken(accessToken, tokenType, expireTimeMs, xblXsts);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class MCToken extends AbstractStep.StepResult<StepXblXstsToken.XblXsts<?>> {
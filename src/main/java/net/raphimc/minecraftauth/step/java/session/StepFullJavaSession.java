@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.java.session;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -27,6 +29,8 @@ import net.raphimc.minecraftauth.step.SameInputBiMergeStep;
 import net.raphimc.minecraftauth.step.java.StepMCProfile;
 import net.raphimc.minecraftauth.step.java.StepPlayerCertificates;
 
+import java.io.IOException;
+
 public class StepFullJavaSession extends SameInputBiMergeStep<StepMCProfile.MCProfile, StepPlayerCertificates.PlayerCertificates, StepFullJavaSession.FullJavaSession> {
 
     public StepFullJavaSession(final AbstractStep<?, StepMCProfile.MCProfile> prevStep1, final AbstractStep<?, StepPlayerCertificates.PlayerCertificates> prevStep2) {
@@ -53,6 +57,16 @@ public class StepFullJavaSession extends SameInputBiMergeStep<StepMCProfile.MCPr
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final FullJavaSession fullJavaSession, final AbstractStep<?, ?> omittedStep) throws IOException {
+        this.writeMergedJson(writer, fullJavaSession, omittedStep);
+    }
+
+    @Override
+    protected FullJavaSession readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        return this.readMergedJson(reader, providedStep, providedResult, FullJavaSession::new);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class FullJavaSession extends BiMergeStep.StepResult<StepMCProfile.MCProfile, StepPlayerCertificates.PlayerCertificates> {
@@ -0,0 +1,162 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.step.msa;
+
+import com.google.gson.JsonObject;
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.raphimc.minecraftauth.MinecraftAuth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls the token endpoint for any number of pending device code logins using a shared scheduled executor.<br>
+ * No thread is blocked while waiting for the user. The scheduled executor only times the polls, the token requests are sent using the executor of the login.
+ * The server provided interval and slow_down responses are honoured.
+ */
+public class DeviceCodePoller {
+
+    private static DeviceCodePoller DEFAULT;
+
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    public DeviceCodePoller(final ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return The poller used by the asynchronous device code login. It is backed by two daemon threads.
+     */
+    public static synchronized DeviceCodePoller getDefault() {
+        if (DEFAULT == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            DEFAULT = new DeviceCodePoller(Executors.newScheduledThreadPool(2, runnable -> {
+                final Thread thread = new Thread(runnable, "MinecraftAuth Device Code Poller #" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Sets the poller used by the asynchronous device code login
+     *
+     * @param poller The poller
+     */
+    public static synchronized void setDefault(final DeviceCodePoller poller) {
+        DEFAULT = poller;
+    }
+
+    /**
+     * Starts polling for the given device code.<br>
+     * Cancelling the returned future stops polling.
+     *
+     * @param httpClient    The http client used for the token requests
+     * @param msaDeviceCode The device code
+     * @param timeoutMs     The maximum time to wait for the login in milliseconds
+     * @param executor      The executor which sends the token requests
+     * @return A future which is completed once the user has logged in
+     */
+    public CompletableFuture<MsaCodeStep.MsaCode> poll(final HttpClient httpClient, final StepMsaDeviceCode.MsaDeviceCode msaDeviceCode, final long timeoutMs, final Executor executor) {
+        final PollTask pollTask = new PollTask(httpClient, msaDeviceCode, System.currentTimeMillis() + timeoutMs, executor);
+        this.pendingCount.incrementAndGet();
+        pollTask.future.whenComplete((msaCode, throwable) -> this.pendingCount.decrementAndGet());
+        pollTask.schedule();
+        return pollTask.future;
+    }
+
+    /**
+     * @return The amount of device codes which are currently polled
+     */
+    public int getPendingCount() {
+        return this.pendingCount.get();
+    }
+
+    private class PollTask implements Runnable {
+
+        private final HttpClient httpClient;
+        private final StepMsaDeviceCode.MsaDeviceCode msaDeviceCode;
+        private final long deadline;
+        private final Executor executor;
+        private final CompletableFuture<MsaCodeStep.MsaCode> future = new CompletableFuture<>();
+        private long intervalMs;
+
+        private PollTask(final HttpClient httpClient, final StepMsaDeviceCode.MsaDeviceCode msaDeviceCode, final long deadline, final Executor executor) {
+            this.httpClient = httpClient;
+            this.msaDeviceCode = msaDeviceCode;
+            this.deadline = deadline;
+            this.executor = executor;
+            this.intervalMs = msaDeviceCode.getIntervalMs();
+        }
+
+        @Override
+        public void run() {
+            if (this.future.isDone()) {
+                return;
+            }
+            if (this.msaDeviceCode.isExpired() || System.currentTimeMillis() > this.deadline) {
+                this.future.completeExceptionally(new TimeoutException("Failed to get MSA Code. Login timed out"));
+                return;
+            }
+
+            try {
+                this.executor.execute(this::requestToken);
+            } catch (Throwable e) {
+                this.future.completeExceptionally(e);
+            }
+        }
+
+        private void requestToken() {
+            if (this.future.isDone()) {
+                return;
+            }
+
+            try {
+                final JsonObject obj = StepMsaDeviceCodeMsaCode.requestToken(this.httpClient, this.msaDeviceCode);
+                if (obj.has("error")) {
+                    if (obj.get("error").getAsString().equals(StepMsaDeviceCodeMsaCode.SLOW_DOWN)) {
+                        this.intervalMs += StepMsaDeviceCodeMsaCode.SLOW_DOWN_INCREMENT_MS;
+                    }
+                    this.schedule();
+                } else {
+                    this.future.complete(StepMsaDeviceCodeMsaCode.createMsaCode(obj, this.msaDeviceCode));
+                }
+            } catch (Throwable e) {
+                this.future.completeExceptionally(e);
+            }
+        }
+
+        private void schedule() {
+            try {
+                DeviceCodePoller.this.scheduler.schedule(this, this.intervalMs, TimeUnit.MILLISECONDS);
+            } catch (Throwable e) {
+                MinecraftAuth.LOGGER.error("Failed to schedule device code poll: " + e.getMessage());
+                this.future.completeExceptionally(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.step.msa;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.lenni0451.commons.httpclient.constants.StatusCodes;
+import net.lenni0451.commons.httpclient.utils.URLWrapper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A long-lived local webserver which receives the OAuth redirects of any number of concurrent local webserver logins on a single port.<br>
+ * Callbacks are routed to the waiting logins by their OAuth state parameter.
+ */
+public class LocalWebServerListener {
+
+    private final HttpServer httpServer;
+    private final Map<String, CompletableFuture<Map<String, String>>> pendingLogins = new ConcurrentHashMap<>();
+
+    /**
+     * @param port     The port to listen on or 0 to use any free port
+     * @param executor The executor which handles the requests or null to use a single thread
+     */
+    public LocalWebServerListener(final int port, final Executor executor) throws IOException {
+        this.httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        this.httpServer.createContext("/", this::handle);
+        this.httpServer.setExecutor(executor);
+    }
+
+    public void start() {
+        this.httpServer.start();
+    }
+
+    /**
+     * Stops the webserver. Pending logins fail with an exception.
+     */
+    public void stop() {
+        this.httpServer.stop(0);
+        for (CompletableFuture<Map<String, String>> future : this.pendingLogins.values()) {
+            future.completeExceptionally(new IllegalStateException("Local webserver has been stopped"));
+        }
+    }
+
+    public int getPort() {
+        return this.httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return The amount of logins which are waiting for their redirect
+     */
+    public int getPendingCount() {
+        return this.pendingLogins.size();
+    }
+
+    /**
+     * Registers a login which waits for the redirect with the given state
+     *
+     * @param state The OAuth state parameter of the login
+     * @return A future which is completed with the query parameters of the redirect. Completing it exceptionally (e.g. on timeout) unregisters the login.
+     */
+    public CompletableFuture<Map<String, String>> register(final String state) {
+        final CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+        if (this.pendingLogins.putIfAbsent(state, future) != null) {
+            throw new IllegalStateException("A login with the same state is already pending");
+        }
+        future.whenComplete((parameters, throwable) -> this.pendingLogins.remove(state, future));
+        return future;
+    }
+
+    private void handle(final HttpExchange httpExchange) throws IOException {
+        final Map<String, String> parameters;
+        final CompletableFuture<Map<String, String>> future;
+        try {
+            parameters = new URLWrapper(httpExchange.getRequestURI()).wrapQuery().getQueries();
+            future = parameters.containsKey("state") ? this.pendingLogins.get(parameters.get("state")) : null;
+        } catch (Throwable e) {
+            sendResponse(httpExchange, StatusCodes.BAD_REQUEST, "Invalid request");
+            return;
+        }
+        if (future == null) {
+            sendResponse(httpExchange, StatusCodes.BAD_REQUEST, "Unknown or expired login request");
+            return;
+        }
+
+        try {
+            StepLocalWebServerMsaCode.validateCallback(parameters);
+            sendResponse(httpExchange, StatusCodes.OK, StepLocalWebServerMsaCode.SUCCESS_MESSAGE);
+            future.complete(parameters);
+        } catch (Throwable e) {
+            sendResponse(httpExchange, StatusCodes.INTERNAL_SERVER_ERROR, "Login failed. Error message: " + e.getMessage());
+            future.completeExceptionally(e);
+        }
+    }
+
+    static void sendResponse(final HttpExchange httpExchange, final int statusCode, final String message) throws IOException {
+        final byte[] response = message.getBytes(StandardCharsets.UTF_8);
+        httpExchange.sendResponseHeaders(statusCode, response.length);
+        httpExchange.getResponseBody().write(response);
+        httpExchange.close();
+    }
+
+}
@@ -18,18 +18,24 @@
 package net.raphimc.minecraftauth.step.msa;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.*;
 import lombok.experimental.NonFinal;
 import lombok.experimental.PackagePrivate;
 import net.lenni0451.commons.httpclient.HttpClient;
 import net.raphimc.minecraftauth.step.AbstractStep;
+import net.raphimc.minecraftauth.step.RefreshPlan;
 import net.raphimc.minecraftauth.util.JsonUtil;
 import net.raphimc.minecraftauth.util.OAuthEnvironment;
 import net.raphimc.minecraftauth.util.UuidUtil;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public abstract class MsaCodeStep<I extends AbstractStep.InitialInput> extends AbstractStep<I, MsaCodeStep.MsaCode> {
 
@@ -38,7 +44,19 @@ public abstract class MsaCodeStep<I extends AbstractStep.InitialInput> extends A
     }
 
     @Override
-    public final MsaCodeStep.MsaCode refresh(final HttpClient httpClient, final MsaCodeStep.MsaCode result) {
+    public final MsaCodeStep.MsaCode refresh(final HttpClient httpClient, final MsaCodeStep.MsaCode result, final long refreshAheadMs) {
+        throw new UnsupportedOperationException("Cannot refresh MsaCodeStep");
+    }
+
+    @Override
+    public final CompletableFuture<MsaCodeStep.MsaCode> refreshAsync(final HttpClient httpClient, final MsaCodeStep.MsaCode result, final Executor executor, final boolean parallel) {
+        final CompletableFuture<MsaCodeStep.MsaCode> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException("Cannot refresh MsaCodeStep"));
+        return future;
+    }
+
+    @Override
+    public final RefreshPlan planRefresh(final MsaCodeStep.MsaCode result, final long refreshAheadMs) {
         throw new UnsupportedOperationException("Cannot refresh MsaCodeStep");
     }
 
@@ -68,6 +86,55 @@ public abstract class MsaCodeStep<I extends AbstractStep.InitialInput> extends A
         return json;
     }
 
+    @Override
+    protected final void writeJson(final JsonWriter writer, final MsaCode msaCode, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("code").value(msaCode.code);
+        writer.name("clientId").value(msaCode.applicationDetails.clientId);
+        writer.name("scope").value(msaCode.applicationDetails.scope);
+        writer.name("clientSecret").value(msaCode.applicationDetails.clientSecret);
+        writer.name("redirectUri").value(msaCode.applicationDetails.redirectUri);
+        writer.name("oAuthEnvironment").value(msaCode.applicationDetails.oAuthEnvironment.name());
+        writer.endObject();
+    }
+
+    @Override
+    protected final MsaCode readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        String code = null;
+        String clientId = null;
+        String scope = null;
+        String clientSecret = null;
+        String redirectUri = null;
+        String oAuthEnvironment = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "code":
+                    code = JsonUtil.nextStringOrNull(reader);
+                    break;
+                case "clientId":
+                    clientId = reader.nextString();
+                    break;
+                case "scope":
+                    scope = reader.nextString();
+                    break;
+                case "clientSecret":
+                    clientSecret = JsonUtil.nextStringOrNull(reader);
+                    break;
+                case "redirectUri":
+                    redirectUri = JsonUtil.nextStringOrNull(reader);
+                    break;
+                case "oAuthEnvironment":
+                    oAuthEnvironment = JsonUtil.nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new MsaCode(code, new ApplicationDetails(clientId, scope, clientSecret, redirectUri, OAuthEnvironment.valueOf(oAuthEnvironment != null ? oAuthEnvironment : "LIVE")));
+    }
+
     @Value
     @With
     @EqualsAndHashCode(callSuper = false)
@@ -39,7 +39,9 @@ import net.raphimc.minecraftauth.util.JsonUtil;
 import java.io.StringReader;
 import java.net.CookieManager;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -53,6 +55,11 @@ public class StepCredentialsMsaCode extends MsaCodeStep<StepCredentialsMsaCode.M
         this.applicationDetails = applicationDetails;
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(this.applicationDetails.getOAuthEnvironment().getAuthorizeUrl());
+    }
+
     @Override
     public MsaCode applyStep(final HttpClient httpClient, final MsaCredentials msaCredentials) throws Exception {
         MinecraftAuth.LOGGER.info("Trying to get MSA Code using email and password...");
@@ -17,23 +17,36 @@
  */
 package net.raphimc.minecraftauth.step.msa;
 
-import lombok.EqualsAndHashCode;
-import lombok.Value;
+import lombok.*;
+import lombok.experimental.NonFinal;
+import lombok.experimental.PackagePrivate;
 import net.lenni0451.commons.httpclient.HttpClient;
 import net.lenni0451.commons.httpclient.utils.URLWrapper;
 import net.raphimc.minecraftauth.MinecraftAuth;
 import net.raphimc.minecraftauth.step.AbstractStep;
 import net.raphimc.minecraftauth.step.InitialPreparationStep;
+import org.jetbrains.annotations.ApiStatus;
 
+import java.net.MalformedURLException;
 import java.net.ServerSocket;
-import java.net.URL;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class StepLocalWebServer extends InitialPreparationStep<StepLocalWebServer.LocalWebServerCallback, StepLocalWebServer.LocalWebServer> {
 
     private final MsaCodeStep.ApplicationDetails applicationDetails;
+    private final LocalWebServerListener listener;
 
     public StepLocalWebServer(final MsaCodeStep.ApplicationDetails applicationDetails) {
+        this(applicationDetails, null);
+    }
+
+    /**
+     * @param listener The shared webserver which receives the redirect or null to start a webserver for every login
+     */
+    public StepLocalWebServer(final MsaCodeStep.ApplicationDetails applicationDetails, final LocalWebServerListener listener) {
         super("localWebServer");
 
         if (applicationDetails.getRedirectUri().endsWith("/")) {
@@ -41,6 +54,7 @@ public class StepLocalWebServer extends InitialPreparationStep<StepLocalWebServe
         }
 
         this.applicationDetails = applicationDetails;
+        this.listener = listener;
     }
 
     @Override
@@ -51,17 +65,30 @@ public class StepLocalWebServer extends InitialPreparationStep<StepLocalWebServe
             throw new IllegalStateException("Missing StepLocalWebServer.LocalWebServerCallback input");
         }
 
+        if (this.listener != null) {
+            final String state = UUID.randomUUID().toString();
+            final LocalWebServer localWebServer = new LocalWebServer(
+                    this.createAuthenticationUrl(this.listener.getPort(), state),
+                    this.listener.getPort(),
+                    state,
+                    this.applicationDetails
+            );
+            localWebServer.callbackFuture = this.listener.register(state);
+            MinecraftAuth.LOGGER.info("Created local webserver MSA authentication URL: " + localWebServer.getAuthenticationUrl());
+            try {
+                localWebServerCallback.callback.accept(localWebServer);
+            } catch (Throwable e) {
+                localWebServer.callbackFuture.cancel(false); // Unregisters the login
+                throw e;
+            }
+            return localWebServer;
+        }
+
         try (final ServerSocket localServer = new ServerSocket(0)) {
             final int localPort = localServer.getLocalPort();
 
-            final URL authenticationUrl = new URLWrapper(this.applicationDetails.getOAuthEnvironment().getAuthorizeUrl()).wrapQuery()
-                    .addQueries(this.applicationDetails.getOAuthParameters())
-                    .setQuery("redirect_uri", this.applicationDetails.getRedirectUri() + ":" + localPort)
-                    .setQuery("prompt", "select_account")
-                    .apply().toURL();
-
             final LocalWebServer localWebServer = new LocalWebServer(
-                    authenticationUrl.toString(),
+                    this.createAuthenticationUrl(localPort, null),
                     localPort,
                     this.applicationDetails
             );
@@ -71,17 +98,42 @@ public class StepLocalWebServer extends InitialPreparationStep<StepLocalWebServe
         }
     }
 
+    private String createAuthenticationUrl(final int port, final String state) throws MalformedURLException {
+        final URLWrapper.QueryWrapper queryWrapper = new URLWrapper(this.applicationDetails.getOAuthEnvironment().getAuthorizeUrl()).wrapQuery()
+                .addQueries(this.applicationDetails.getOAuthParameters())
+                .setQuery("redirect_uri", this.applicationDetails.getRedirectUri() + ":" + port)
+                .setQuery("prompt", "select_account");
+        if (state != null) {
+            queryWrapper.setQuery("state", state);
+        }
+        return queryWrapper.apply().toURL().toString();
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class LocalWebServer extends AbstractStep.InitialInput {
 
         String authenticationUrl;
         int port;
+        String state;
         MsaCodeStep.ApplicationDetails applicationDetails;
 
+        @ApiStatus.Internal
+        @Getter(AccessLevel.NONE)
+        @PackagePrivate
+        @NonFinal
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        CompletableFuture<Map<String, String>> callbackFuture; // Used with a shared LocalWebServerListener
+
         public LocalWebServer(final String authenticationUrl, final int port, final MsaCodeStep.ApplicationDetails applicationDetails) {
+            this(authenticationUrl, port, null, applicationDetails);
+        }
+
+        public LocalWebServer(final String authenticationUrl, final int port, final String state, final MsaCodeStep.ApplicationDetails applicationDetails) {
             this.authenticationUrl = authenticationUrl;
             this.port = port;
+            this.state = state;
             this.applicationDetails = applicationDetails.withRedirectUri(applicationDetails.getRedirectUri() + ":" + port);
         }
 
@@ -26,9 +26,9 @@ import net.lenni0451.commons.httpclient.utils.URLWrapper;
 import net.raphimc.minecraftauth.MinecraftAuth;
 import net.raphimc.minecraftauth.responsehandler.exception.MsaRequestException;
 import net.raphimc.minecraftauth.step.AbstractStep;
+import net.raphimc.minecraftauth.util.http.RequestDeadline;
 
 import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -38,6 +38,8 @@ import java.util.concurrent.TimeoutException;
 
 public class StepLocalWebServerMsaCode extends MsaCodeStep<StepLocalWebServer.LocalWebServer> {
 
+    static final String SUCCESS_MESSAGE = "You have been logged in! You can now close this window.";
+
     private final int timeout;
 
     public StepLocalWebServerMsaCode(final AbstractStep<?, StepLocalWebServer.LocalWebServer> prevStep, final int timeout) {
@@ -51,30 +53,35 @@ public class StepLocalWebServerMsaCode extends MsaCodeStep<StepLocalWebServer.Lo
     public MsaCode applyStep(final HttpClient httpClient, final StepLocalWebServer.LocalWebServer localWebServer) throws Exception {
         MinecraftAuth.LOGGER.info("Waiting for MSA login via local webserver...");
 
+        if (localWebServer.callbackFuture != null) { // Shared LocalWebServerListener
+            try {
+                final Map<String, String> parameters = localWebServer.callbackFuture.get(RequestDeadline.getRemainingTime(httpClient, this.timeout), TimeUnit.MILLISECONDS);
+                MinecraftAuth.LOGGER.info("Got MSA Code");
+                return new MsaCode(parameters.get("code"), localWebServer.getApplicationDetails());
+            } catch (TimeoutException e) {
+                localWebServer.callbackFuture.completeExceptionally(e);
+                throw new TimeoutException("MSA login timed out");
+            } catch (ExecutionException e) {
+                if (e.getCause() != null) {
+                    throw e.getCause();
+                } else {
+                    throw e;
+                }
+            }
+        }
+
         final CompletableFuture<MsaCode> msaCodeFuture = new CompletableFuture<>();
         final HttpServer httpServer = HttpServer.create(new InetSocketAddress(localWebServer.getPort()), 0);
         httpServer.createContext("/", httpExchange -> {
             try {
                 final Map<String, String> parameters = new URLWrapper(httpExchange.getRequestURI()).wrapQuery().getQueries();
-                if (parameters.containsKey("error") && parameters.containsKey("error_description")) {
-                    final HttpResponse fakeResponse = new HttpResponse(null, 500, new byte[0], Collections.emptyMap());
-                    throw new MsaRequestException(fakeResponse, parameters.get("error"), parameters.get("error_description"));
-                }
-                if (!parameters.containsKey("code")) {
-                    throw new IllegalStateException("Could not extract MSA Code from response url");
-                }
+                validateCallback(parameters);
 
-                final byte[] response = "You have been logged in! You can now close this window.".getBytes(StandardCharsets.UTF_8);
-                httpExchange.sendResponseHeaders(StatusCodes.OK, response.length);
-                httpExchange.getResponseBody().write(response);
-                httpExchange.close();
+                LocalWebServerListener.sendResponse(httpExchange, StatusCodes.OK, SUCCESS_MESSAGE);
 
                 msaCodeFuture.complete(new MsaCode(parameters.get("code"), localWebServer.getApplicationDetails()));
             } catch (Throwable e) {
-                final byte[] response = ("Login failed. Error message: " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
-                httpExchange.sendResponseHeaders(StatusCodes.INTERNAL_SERVER_ERROR, response.length);
-                httpExchange.getResponseBody().write(response);
-                httpExchange.close();
+                LocalWebServerListener.sendResponse(httpExchange, StatusCodes.INTERNAL_SERVER_ERROR, "Login failed. Error message: " + e.getMessage());
 
                 msaCodeFuture.completeExceptionally(e);
             }
@@ -82,7 +89,7 @@ public class StepLocalWebServerMsaCode extends MsaCodeStep<StepLocalWebServer.Lo
         httpServer.start();
 
         try {
-            final MsaCode msaCode = msaCodeFuture.get(this.timeout, TimeUnit.MILLISECONDS);
+            final MsaCode msaCode = msaCodeFuture.get(RequestDeadline.getRemainingTime(httpClient, this.timeout), TimeUnit.MILLISECONDS);
             httpServer.stop(0);
             MinecraftAuth.LOGGER.info("Got MSA Code");
             return msaCode;
@@ -99,4 +106,14 @@ public class StepLocalWebServerMsaCode extends MsaCodeStep<StepLocalWebServer.Lo
         }
     }
 
+    static void validateCallback(final Map<String, String> parameters) throws MsaRequestException {
+        if (parameters.containsKey("error") && parameters.containsKey("error_description")) {
+            final HttpResponse fakeResponse = new HttpResponse(null, 500, new byte[0], Collections.emptyMap());
+            throw new MsaRequestException(fakeResponse, parameters.get("error"), parameters.get("error_description"));
+        }
+        if (!parameters.containsKey("code")) {
+            throw new IllegalStateException("Could not extract MSA Code from response url");
+        }
+    }
+
 }
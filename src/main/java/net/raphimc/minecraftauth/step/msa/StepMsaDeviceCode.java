@@ -31,7 +31,9 @@ import net.raphimc.minecraftauth.util.OAuthEnvironment;
 
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -45,6 +47,11 @@ public class StepMsaDeviceCode extends InitialPreparationStep<StepMsaDeviceCode.
         this.applicationDetails = applicationDetails;
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(this.applicationDetails.getOAuthEnvironment().getDeviceCodeUrl());
+    }
+
     @Override
     public MsaDeviceCode applyStep(final HttpClient httpClient, final MsaDeviceCodeCallback msaDeviceCodeCallback) throws Exception {
         MinecraftAuth.LOGGER.info("Getting device code for MSA login...");
@@ -19,23 +19,31 @@ package net.raphimc.minecraftauth.step.msa;
 
 import com.google.gson.JsonObject;
 import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.HttpResponse;
 import net.lenni0451.commons.httpclient.constants.StatusCodes;
 import net.lenni0451.commons.httpclient.content.impl.URLEncodedFormContent;
 import net.lenni0451.commons.httpclient.requests.impl.PostRequest;
 import net.raphimc.minecraftauth.MinecraftAuth;
 import net.raphimc.minecraftauth.responsehandler.MsaResponseHandler;
-import net.raphimc.minecraftauth.responsehandler.exception.MsaRequestException;
 import net.raphimc.minecraftauth.step.AbstractStep;
 import net.raphimc.minecraftauth.util.JsonUtil;
+import net.raphimc.minecraftauth.util.http.RequestDeadline;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 public class StepMsaDeviceCodeMsaCode extends MsaCodeStep<StepMsaDeviceCode.MsaDeviceCode> {
 
+    static final String AUTHORIZATION_PENDING = "authorization_pending";
+    static final String SLOW_DOWN = "slow_down";
+    static final long SLOW_DOWN_INCREMENT_MS = 5000;
+
     private final int timeout;
 
     public StepMsaDeviceCodeMsaCode(final AbstractStep<?, StepMsaDeviceCode.MsaDeviceCode> prevStep, final int timeout) {
@@ -48,37 +56,78 @@ public class StepMsaDeviceCodeMsaCode extends MsaCodeStep<StepMsaDeviceCode.MsaD
     public MsaCode applyStep(final HttpClient httpClient, final StepMsaDeviceCode.MsaDeviceCode msaDeviceCode) throws Exception {
         MinecraftAuth.LOGGER.info("Waiting for MSA login via device code...");
 
+        final long timeoutMs = RequestDeadline.getRemainingTime(httpClient, this.timeout);
         final long start = System.currentTimeMillis();
-        while (!msaDeviceCode.isExpired() && System.currentTimeMillis() - start <= this.timeout) {
-            final Map<String, String> postData = new HashMap<>();
-            postData.put("client_id", msaDeviceCode.getApplicationDetails().getClientId());
-            postData.put("device_code", msaDeviceCode.getDeviceCode());
-            postData.put("grant_type", "device_code");
-
-            final PostRequest postRequest = new PostRequest(msaDeviceCode.getApplicationDetails().getOAuthEnvironment().getTokenUrl());
-            postRequest.setContent(new URLEncodedFormContent(postData));
-            try {
-                final JsonObject obj = httpClient.execute(postRequest, new MsaResponseHandler());
-
-                final MsaCode msaCode = new MsaCode(null, msaDeviceCode.getApplicationDetails());
-                msaCode.msaToken = new StepMsaToken.MsaToken(
-                        System.currentTimeMillis() + obj.get("expires_in").getAsLong() * 1000,
-                        obj.get("access_token").getAsString(),
-                        JsonUtil.getStringOr(obj, "refresh_token", null),
-                        msaCode
-                );
-                MinecraftAuth.LOGGER.info("Got MSA Token, expires: " + Instant.ofEpochMilli(msaCode.msaToken.getExpireTimeMs()).atZone(ZoneId.systemDefault()));
-                return msaCode;
-            } catch (MsaRequestException e) {
-                if (e.getResponse().getStatusCode() == StatusCodes.BAD_REQUEST && e.getError().equals("authorization_pending")) {
-                    Thread.sleep(msaDeviceCode.getIntervalMs());
-                    continue;
+        long intervalMs = msaDeviceCode.getIntervalMs();
+        while (!msaDeviceCode.isExpired() && System.currentTimeMillis() - start <= timeoutMs) {
+            final JsonObject obj = requestToken(httpClient, msaDeviceCode);
+            if (obj.has("error")) {
+                if (obj.get("error").getAsString().equals(SLOW_DOWN)) {
+                    intervalMs += SLOW_DOWN_INCREMENT_MS;
                 }
-                throw e;
+                Thread.sleep(intervalMs);
+                continue;
             }
+
+            return createMsaCode(obj, msaDeviceCode);
         }
 
         throw new TimeoutException("Failed to get MSA Code. Login timed out");
     }
 
+    /**
+     * Waits for the login using the shared {@link DeviceCodePoller} instead of blocking a thread of the executor between the token requests
+     */
+    @Override
+    public CompletableFuture<MsaCode> applyStepAsync(final HttpClient httpClient, final StepMsaDeviceCode.MsaDeviceCode msaDeviceCode, final Executor executor) {
+        MinecraftAuth.LOGGER.info("Waiting for MSA login via device code...");
+        return DeviceCodePoller.getDefault().poll(httpClient, msaDeviceCode, RequestDeadline.getRemainingTime(httpClient, this.timeout), executor);
+    }
+
+    /**
+     * Sends a single token request for the given device code
+     *
+     * @return The token response or an object containing only the error if the login is still pending
+     */
+    static JsonObject requestToken(final HttpClient httpClient, final StepMsaDeviceCode.MsaDeviceCode msaDeviceCode) throws IOException {
+        final Map<String, String> postData = new HashMap<>();
+        postData.put("client_id", msaDeviceCode.getApplicationDetails().getClientId());
+        postData.put("device_code", msaDeviceCode.getDeviceCode());
+        postData.put("grant_type", "device_code");
+
+        final PostRequest postRequest = new PostRequest(msaDeviceCode.getApplicationDetails().getOAuthEnvironment().getTokenUrl());
+        postRequest.setContent(new URLEncodedFormContent(postData));
+        return httpClient.execute(postRequest, new DeviceCodeResponseHandler());
+    }
+
+    static MsaCode createMsaCode(final JsonObject obj, final StepMsaDeviceCode.MsaDeviceCode msaDeviceCode) {
+        final MsaCode msaCode = new MsaCode(null, msaDeviceCode.getApplicationDetails());
+        msaCode.msaToken = new StepMsaToken.MsaToken(
+                System.currentTimeMillis() + obj.get("expires_in").getAsLong() * 1000,
+                obj.get("access_token").getAsString(),
+                JsonUtil.getStringOr(obj, "refresh_token", null),
+                msaCode
+        );
+        MinecraftAuth.LOGGER.info("Got MSA Token, expires: " + Instant.ofEpochMilli(msaCode.msaToken.getExpireTimeMs()).atZone(ZoneId.systemDefault()));
+        return msaCode;
+    }
+
+    private static class DeviceCodeResponseHandler extends MsaResponseHandler {
+
+        @Override
+        protected JsonObject handleJson(final HttpResponse response, final JsonObject obj) throws IOException {
+            if (response.getStatusCode() == StatusCodes.BAD_REQUEST) {
+                final String error = JsonUtil.getStringOr(obj, "error", null);
+                if (AUTHORIZATION_PENDING.equals(error) || SLOW_DOWN.equals(error)) {
+                    final JsonObject pending = new JsonObject();
+                    pending.addProperty("error", error);
+                    return pending;
+                }
+            }
+
+            return super.handleJson(response, obj);
+        }
+
+    }
+
 }
@@ -18,7 +18,10 @@
 package net.raphimc.minecraftauth.step.msa;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
+import lombok.SneakyThrows;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
 import net.lenni0451.commons.httpclient.content.impl.URLEncodedFormContent;
@@ -26,12 +29,18 @@ import net.lenni0451.commons.httpclient.requests.impl.PostRequest;
 import net.raphimc.minecraftauth.MinecraftAuth;
 import net.raphimc.minecraftauth.responsehandler.MsaResponseHandler;
 import net.raphimc.minecraftauth.step.AbstractStep;
+import net.raphimc.minecraftauth.step.RefreshPlan;
 import net.raphimc.minecraftauth.util.JsonUtil;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public class StepMsaToken extends AbstractStep<MsaCodeStep.MsaCode, StepMsaToken.MsaToken> {
 
@@ -49,13 +58,35 @@ public class StepMsaToken extends AbstractStep<MsaCodeStep.MsaCode, StepMsaToken
     }
 
     @Override
-    public MsaToken refresh(final HttpClient httpClient, final MsaToken msaToken) throws Exception {
-        if (!msaToken.isExpired()) {
-            return msaToken;
-        } else if (msaToken.getRefreshToken() != null) {
+    protected MsaToken doRefresh(final HttpClient httpClient, final MsaToken msaToken, final long refreshAheadMs) throws Exception {
+        if (msaToken.getRefreshToken() != null) {
             return this.apply(httpClient, "refresh_token", msaToken.getRefreshToken(), msaToken.getMsaCode());
         } else {
-            return super.refresh(httpClient, msaToken);
+            return super.doRefresh(httpClient, msaToken, refreshAheadMs);
+        }
+    }
+
+    @Override
+    protected RefreshPlan doPlanRefresh(final MsaToken msaToken, final long refreshAheadMs) {
+        if (msaToken.getRefreshToken() != null) {
+            return RefreshPlan.EMPTY.then(this, Collections.singletonList(msaToken.getMsaCode().getApplicationDetails().getOAuthEnvironment().getTokenUrl()));
+        } else {
+            return super.doPlanRefresh(msaToken, refreshAheadMs);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<MsaToken> doRefreshAsync(final HttpClient httpClient, final MsaToken msaToken, final Executor executor, final boolean parallel) {
+        if (msaToken.getRefreshToken() != null) {
+            return CompletableFuture.supplyAsync(new Supplier<MsaToken>() {
+                @Override
+                @SneakyThrows
+                public MsaToken get() {
+                    return StepMsaToken.this.apply(httpClient, "refresh_token", msaToken.getRefreshToken(), msaToken.getMsaCode());
+                }
+            }, executor);
+        } else {
+            return super.doRefreshAsync(httpClient, msaToken, executor, parallel);
         }
     }
 
@@ -80,6 +111,47 @@ public class StepMsaToken extends AbstractStep<MsaCodeStep.MsaCode, StepMsaToken
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final MsaToken msaToken, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("expireTimeMs").value(msaToken.expireTimeMs);
+        writer.name("accessToken").value(msaToken.accessToken);
+        writer.name("refreshToken").value(msaToken.refreshToken);
+        this.writePrevJson(writer, msaToken.msaCode, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected MsaToken readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        long expireTimeMs = 0;
+        String accessToken = null;
+        String refreshToken = null;
+        MsaCodeStep.MsaCode msaCode = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                msaCode = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "expireTimeMs":
+                    expireTimeMs = reader.nextLong();
+                    break;
+                case "accessToken":
+                    accessToken = reader.nextString();
+                    break;
+                case "refreshToken":
+                    refreshToken = JsonUtil.nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new MsaToken(expireTimeMs, accessToken, refreshToken, msaCode);
+    }
+
     private MsaToken apply(final HttpClient httpClient, final String type, final String code, final MsaCodeStep.MsaCode msaCode) throws Exception {
         final MsaCodeStep.ApplicationDetails applicationDetails = msaCode.getApplicationDetails();
         MinecraftAuth.LOGGER.info("Getting MSA Token...");
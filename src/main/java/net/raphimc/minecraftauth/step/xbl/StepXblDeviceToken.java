@@ -18,7 +18,10 @@
 package net.raphimc.minecraftauth.step.xbl;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
 import net.lenni0451.commons.httpclient.requests.impl.PostRequest;
@@ -27,15 +30,16 @@ import net.raphimc.minecraftauth.responsehandler.XblResponseHandler;
 import net.raphimc.minecraftauth.step.AbstractStep;
 import net.raphimc.minecraftauth.util.CryptUtil;
 import net.raphimc.minecraftauth.util.JsonContent;
+import net.raphimc.minecraftauth.util.keypair.LazyKey;
 
+import java.io.IOException;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
-import java.security.spec.ECGenParameterSpec;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 public class StepXblDeviceToken extends AbstractStep<AbstractStep.StepResult<?>, StepXblDeviceToken.XblDeviceToken> {
@@ -50,14 +54,17 @@ public class StepXblDeviceToken extends AbstractStep<AbstractStep.StepResult<?>,
         this.deviceType = deviceType;
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(XBL_DEVICE_URL);
+    }
+
     @Override
     public XblDeviceToken applyStep(final HttpClient httpClient, final StepResult<?> prevResult) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating device with Xbox Live...");
 
         final UUID id = UUID.randomUUID();
-        final KeyPairGenerator secp256r1 = KeyPairGenerator.getInstance("EC");
-        secp256r1.initialize(new ECGenParameterSpec("secp256r1"));
-        final KeyPair ecdsa256KeyPair = secp256r1.generateKeyPair();
+        final KeyPair ecdsa256KeyPair = MinecraftAuth.KEY_PAIR_SUPPLIER.getEcKeyPair("secp256r1");
         final ECPublicKey publicKey = (ECPublicKey) ecdsa256KeyPair.getPublic();
         final ECPrivateKey privateKey = (ECPrivateKey) ecdsa256KeyPair.getPrivate();
 
@@ -76,15 +83,15 @@ public class StepXblDeviceToken extends AbstractStep<AbstractStep.StepResult<?>,
         postRequest.setContent(new JsonContent(postData));
         postRequest.setHeader("x-xbl-contract-version", "1");
         postRequest.setHeader(CryptUtil.getSignatureHeader(postRequest, privateKey));
-        final JsonObject obj = httpClient.execute(postRequest, new XblResponseHandler());
+        final String[] fields = httpClient.execute(postRequest, new XblResponseHandler().fields("NotAfter", "Token", "DisplayClaims.xdi.did"));
 
         final XblDeviceToken xblDeviceToken = new XblDeviceToken(
                 publicKey,
                 privateKey,
                 id,
-                Instant.parse(obj.get("NotAfter").getAsString()).toEpochMilli(),
-                obj.get("Token").getAsString(),
-                obj.getAsJsonObject("DisplayClaims").getAsJsonObject("xdi").get("did").getAsString()
+                Instant.parse(fields[0]).toEpochMilli(),
+                fields[1],
+                fields[2]
         );
         MinecraftAuth.LOGGER.info("Got XBL Device Token, expires: " + Instant.ofEpochMilli(xblDeviceToken.getExpireTimeMs()).atZone(ZoneId.systemDefault()));
         return xblDeviceToken;
@@ -93,8 +100,8 @@ public class StepXblDeviceToken extends AbstractStep<AbstractStep.StepResult<?>,
     @Override
     public XblDeviceToken fromJson(final JsonObject json) {
         return new XblDeviceToken(
-                CryptUtil.publicKeyEcFromBase64(json.get("publicKey").getAsString()),
-                CryptUtil.privateKeyEcFromBase64(json.get("privateKey").getAsString()),
+                LazyKey.fromBase64(json.get("publicKey").getAsString(), CryptUtil::publicKeyEcFromBase64),
+                LazyKey.fromBase64(json.get("privateKey").getAsString(), CryptUtil::privateKeyEcFromBase64),
                 UUID.fromString(json.get("id").getAsString()),
                 json.get("expireTimeMs").getAsLong(),
                 json.get("token").getAsString(),
@@ -105,8 +112,8 @@ public class StepXblDeviceToken extends AbstractStep<AbstractStep.StepResult<?>,
     @Override
     public JsonObject toJson(final XblDeviceToken xblDeviceToken) {
         final JsonObject json = new JsonObject();
-        json.addProperty("publicKey", Base64.getEncoder().encodeToString(xblDeviceToken.publicKey.getEncoded()));
-        json.addProperty("privateKey", Base64.getEncoder().encodeToString(xblDeviceToken.privateKey.getEncoded()));
+        json.addProperty("publicKey", xblDeviceToken.publicKey.getBase64());
+        json.addProperty("privateKey", xblDeviceToken.privateKey.getBase64());
         json.addProperty("id", xblDeviceToken.id.toString());
         json.addProperty("expireTimeMs", xblDeviceToken.expireTimeMs);
         json.addProperty("token", xblDeviceToken.token);
@@ -114,17 +121,88 @@ public class StepXblDeviceToken extends AbstractStep<AbstractStep.StepResult<?>,
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final XblDeviceToken xblDeviceToken, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("publicKey").value(xblDeviceToken.publicKey.getBase64());
+        writer.name("privateKey").value(xblDeviceToken.privateKey.getBase64());
+        writer.name("id").value(xblDeviceToken.id.toString());
+        writer.name("expireTimeMs").value(xblDeviceToken.expireTimeMs);
+        writer.name("token").value(xblDeviceToken.token);
+        writer.name("deviceId").value(xblDeviceToken.deviceId);
+        writer.endObject();
+    }
+
+    @Override
+    protected XblDeviceToken readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        LazyKey<ECPublicKey> publicKey = null;
+        LazyKey<ECPrivateKey> privateKey = null;
+        UUID id = null;
+        long expireTimeMs = 0;
+        String token = null;
+        String deviceId = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "publicKey":
+                    publicKey = LazyKey.fromBase64(reader.nextString(), CryptUtil::publicKeyEcFromBase64);
+                    break;
+                case "privateKey":
+                    privateKey = LazyKey.fromBase64(reader.nextString(), CryptUtil::privateKeyEcFromBase64);
+                    break;
+                case "id":
+                    id = UUID.fromString(reader.nextString());
+                    break;
+                case "expireTimeMs":
+                    expireTimeMs = reader.nextLong();
+                    break;
+                case "token":
+                    token = reader.nextString();
+                    break;
+                case "deviceId":
+                    deviceId = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new XblDeviceToken(publicKey, privateKey, id, expireTimeMs, token, deviceId);
+    }
+
     @Value
-    @EqualsAndHashCode(callSuper = false)
+    @EqualsAndHashCode(callSuper = false, doNotUseGetters = true)
+    @ToString(doNotUseGetters = true)
     public static class XblDeviceToken extends AbstractStep.FirstStepResult {
 
-        ECPublicKey publicKey;
-        ECPrivateKey privateKey;
+        LazyKey<ECPublicKey> publicKey;
+        LazyKey<ECPrivateKey> privateKey;
         UUID id;
         long expireTimeMs;
         String token;
         String deviceId;
 
+        public XblDeviceToken(final ECPublicKey publicKey, final ECPrivateKey privateKey, final UUID id, final long expireTimeMs, final String token, final String deviceId) {
+            this(LazyKey.of(publicKey), LazyKey.of(privateKey), id, expireTimeMs, token, deviceId);
+        }
+
+        private XblDeviceToken(final LazyKey<ECPublicKey> publicKey, final LazyKey<ECPrivateKey> privateKey, final UUID id, final long expireTimeMs, final String token, final String deviceId) {
+            this.publicKey = publicKey;
+            this.privateKey = privateKey;
+            this.id = id;
+            this.expireTimeMs = expireTimeMs;
+            this.token = token;
+            this.deviceId = deviceId;
+        }
+
+        public ECPublicKey getPublicKey() {
+            return this.publicKey.get();
+        }
+
+        public ECPrivateKey getPrivateKey() {
+            return this.privateKey.get();
+        }
+
         @Override
         public boolean isExpired() {
             return this.expireTimeMs <= System.currentTimeMillis();
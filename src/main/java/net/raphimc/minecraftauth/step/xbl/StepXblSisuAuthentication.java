@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.xbl;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -30,8 +32,11 @@ import net.raphimc.minecraftauth.step.xbl.session.StepInitialXblSession;
 import net.raphimc.minecraftauth.util.CryptUtil;
 import net.raphimc.minecraftauth.util.JsonContent;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
 
 public class StepXblSisuAuthentication extends AbstractStep<StepInitialXblSession.InitialXblSession, StepXblSisuAuthentication.XblSisuTokens> {
 
@@ -45,6 +50,11 @@ public class StepXblSisuAuthentication extends AbstractStep<StepInitialXblSessio
         this.relyingParty = relyingParty;
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(XBL_SISU_URL);
+    }
+
     @Override
     public StepXblSisuAuthentication.XblSisuTokens applyStep(final HttpClient httpClient, final StepInitialXblSession.InitialXblSession initialXblSession) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating with Xbox Live using SISU...");
@@ -114,6 +124,50 @@ public class StepXblSisuAuthentication extends AbstractStep<StepInitialXblSessio
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final StepXblSisuAuthentication.XblSisuTokens xblSisuTokens, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("titleToken");
+        XblSisuTokens.SisuTitleToken.writeJson(writer, xblSisuTokens.titleToken);
+        writer.name("userToken");
+        XblSisuTokens.SisuUserToken.writeJson(writer, xblSisuTokens.userToken);
+        writer.name("xstsToken");
+        XblSisuTokens.SisuXstsToken.writeJson(writer, xblSisuTokens.xstsToken);
+        this.writePrevJson(writer, xblSisuTokens.initialXblSession, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected StepXblSisuAuthentication.XblSisuTokens readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        XblSisuTokens.SisuTitleToken titleToken = null;
+        XblSisuTokens.SisuUserToken userToken = null;
+        XblSisuTokens.SisuXstsToken xstsToken = null;
+        StepInitialXblSession.InitialXblSession initialXblSession = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                initialXblSession = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "titleToken":
+                    titleToken = XblSisuTokens.SisuTitleToken.readJson(reader);
+                    break;
+                case "userToken":
+                    userToken = XblSisuTokens.SisuUserToken.readJson(reader);
+                    break;
+                case "xstsToken":
+                    xstsToken = XblSisuTokens.SisuXstsToken.readJson(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new StepXblSisuAuthentication.XblSisuTokens(titleToken, userToken, xstsToken, initialXblSession);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class XblSisuTokens extends StepXblXstsToken.XblXsts<StepInitialXblSession.InitialXblSession> {
@@ -179,6 +233,38 @@ public class StepXblSisuAuthentication extends AbstractStep<StepInitialXblSessio
                 return json;
             }
 
+            public static void writeJson(final JsonWriter writer, final SisuTitleToken sisuTitleToken) throws IOException {
+                writer.beginObject();
+                writer.name("expireTimeMs").value(sisuTitleToken.expireTimeMs);
+                writer.name("token").value(sisuTitleToken.token);
+                writer.name("titleId").value(sisuTitleToken.titleId);
+                writer.endObject();
+            }
+
+            public static SisuTitleToken readJson(final JsonReader reader) throws IOException {
+                long expireTimeMs = 0;
+                String token = null;
+                String titleId = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "expireTimeMs":
+                            expireTimeMs = reader.nextLong();
+                            break;
+                        case "token":
+                            token = reader.nextString();
+                            break;
+                        case "titleId":
+                            titleId = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return new SisuTitleToken(expireTimeMs, token, titleId);
+            }
+
         }
 
         @Value
@@ -204,6 +290,38 @@ public class StepXblSisuAuthentication extends AbstractStep<StepInitialXblSessio
                 return json;
             }
 
+            public static void writeJson(final JsonWriter writer, final SisuUserToken sisuUserToken) throws IOException {
+                writer.beginObject();
+                writer.name("expireTimeMs").value(sisuUserToken.expireTimeMs);
+                writer.name("token").value(sisuUserToken.token);
+                writer.name("userHash").value(sisuUserToken.userHash);
+                writer.endObject();
+            }
+
+            public static SisuUserToken readJson(final JsonReader reader) throws IOException {
+                long expireTimeMs = 0;
+                String token = null;
+                String userHash = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "expireTimeMs":
+                            expireTimeMs = reader.nextLong();
+                            break;
+                        case "token":
+                            token = reader.nextString();
+                            break;
+                        case "userHash":
+                            userHash = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return new SisuUserToken(expireTimeMs, token, userHash);
+            }
+
         }
 
         @Value
@@ -229,6 +347,38 @@ public class StepXblSisuAuthentication extends AbstractStep<StepInitialXblSessio
                 return json;
             }
 
+            public static void writeJson(final JsonWriter writer, final SisuXstsToken sisuXstsToken) throws IOException {
+                writer.beginObject();
+                writer.name("expireTimeMs").value(sisuXstsToken.expireTimeMs);
+                writer.name("token").value(sisuXstsToken.token);
+                writer.name("userHash").value(sisuXstsToken.userHash);
+                writer.endObject();
+            }
+
+            public static SisuXstsToken readJson(final JsonReader reader) throws IOException {
+                long expireTimeMs = 0;
+                String token = null;
+                String userHash = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "expireTimeMs":
+                            expireTimeMs = reader.nextLong();
+                            break;
+                        case "token":
+                            token = reader.nextString();
+                            break;
+                        case "userHash":
+                            userHash = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return new SisuXstsToken(expireTimeMs, token, userHash);
+            }
+
         }
 
     }
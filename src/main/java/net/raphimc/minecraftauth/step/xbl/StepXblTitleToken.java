@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.xbl;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -29,8 +31,11 @@ import net.raphimc.minecraftauth.step.xbl.session.StepInitialXblSession;
 import net.raphimc.minecraftauth.util.CryptUtil;
 import net.raphimc.minecraftauth.util.JsonContent;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
 
 public class StepXblTitleToken extends AbstractStep<StepInitialXblSession.InitialXblSession, StepXblTitleToken.XblTitleToken> {
 
@@ -40,6 +45,11 @@ public class StepXblTitleToken extends AbstractStep<StepInitialXblSession.Initia
         super("titleToken", prevStep);
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(XBL_TITLE_URL);
+    }
+
     @Override
     public XblTitleToken applyStep(final HttpClient httpClient, final StepInitialXblSession.InitialXblSession initialXblSession) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating title with Xbox Live...");
@@ -66,12 +76,12 @@ public class StepXblTitleToken extends AbstractStep<StepInitialXblSession.Initia
         postRequest.setContent(new JsonContent(postData));
         postRequest.setHeader("x-xbl-contract-version", "1");
         postRequest.setHeader(CryptUtil.getSignatureHeader(postRequest, initialXblSession.getXblDeviceToken().getPrivateKey()));
-        final JsonObject obj = httpClient.execute(postRequest, new XblResponseHandler());
+        final String[] fields = httpClient.execute(postRequest, new XblResponseHandler().fields("NotAfter", "Token", "DisplayClaims.xti.tid"));
 
         final XblTitleToken xblTitleToken = new XblTitleToken(
-                Instant.parse(obj.get("NotAfter").getAsString()).toEpochMilli(),
-                obj.get("Token").getAsString(),
-                obj.getAsJsonObject("DisplayClaims").getAsJsonObject("xti").get("tid").getAsString(),
+                Instant.parse(fields[0]).toEpochMilli(),
+                fields[1],
+                fields[2],
                 initialXblSession
         );
         MinecraftAuth.LOGGER.info("Got XBL Title Token, expires: " + Instant.ofEpochMilli(xblTitleToken.getExpireTimeMs()).atZone(ZoneId.systemDefault()));
@@ -99,6 +109,47 @@ public class StepXblTitleToken extends AbstractStep<StepInitialXblSession.Initia
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final XblTitleToken xblTitleToken, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("expireTimeMs").value(xblTitleToken.expireTimeMs);
+        writer.name("token").value(xblTitleToken.token);
+        writer.name("titleId").value(xblTitleToken.titleId);
+        this.writePrevJson(writer, xblTitleToken.initialXblSession, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected XblTitleToken readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        long expireTimeMs = 0;
+        String token = null;
+        String titleId = null;
+        StepInitialXblSession.InitialXblSession initialXblSession = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                initialXblSession = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "expireTimeMs":
+                    expireTimeMs = reader.nextLong();
+                    break;
+                case "token":
+                    token = reader.nextString();
+                    break;
+                case "titleId":
+                    titleId = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new XblTitleToken(expireTimeMs, token, titleId, initialXblSession);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class XblTitleToken extends AbstractStep.StepResult<StepInitialXblSession.InitialXblSession> {
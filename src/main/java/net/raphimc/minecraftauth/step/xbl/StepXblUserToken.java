@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.xbl;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -29,8 +31,11 @@ import net.raphimc.minecraftauth.step.xbl.session.StepInitialXblSession;
 import net.raphimc.minecraftauth.util.CryptUtil;
 import net.raphimc.minecraftauth.util.JsonContent;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
 
 public class StepXblUserToken extends AbstractStep<StepInitialXblSession.InitialXblSession, StepXblUserToken.XblUserToken> {
 
@@ -40,6 +45,11 @@ public class StepXblUserToken extends AbstractStep<StepInitialXblSession.Initial
         super("xblUserToken", prevStep);
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(XBL_USER_URL);
+    }
+
     @Override
     public XblUserToken applyStep(final HttpClient httpClient, final StepInitialXblSession.InitialXblSession initialXblSession) throws Exception {
         MinecraftAuth.LOGGER.info("Authenticating user with Xbox Live...");
@@ -62,12 +72,12 @@ public class StepXblUserToken extends AbstractStep<StepInitialXblSession.Initial
         if (initialXblSession.getXblDeviceToken() != null) {
             postRequest.setHeader(CryptUtil.getSignatureHeader(postRequest, initialXblSession.getXblDeviceToken().getPrivateKey()));
         }
-        final JsonObject obj = httpClient.execute(postRequest, new XblResponseHandler());
+        final String[] fields = httpClient.execute(postRequest, new XblResponseHandler().fields("NotAfter", "Token", "DisplayClaims.xui.0.uhs"));
 
         final XblUserToken xblUserToken = new XblUserToken(
-                Instant.parse(obj.get("NotAfter").getAsString()).toEpochMilli(),
-                obj.get("Token").getAsString(),
-                obj.getAsJsonObject("DisplayClaims").getAsJsonArray("xui").get(0).getAsJsonObject().get("uhs").getAsString(),
+                Instant.parse(fields[0]).toEpochMilli(),
+                fields[1],
+                fields[2],
                 initialXblSession
         );
         MinecraftAuth.LOGGER.info("Got XBL User Token, expires: " + Instant.ofEpochMilli(xblUserToken.getExpireTimeMs()).atZone(ZoneId.systemDefault()));
@@ -95,6 +105,47 @@ public class StepXblUserToken extends AbstractStep<StepInitialXblSession.Initial
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final XblUserToken xblUserToken, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("expireTimeMs").value(xblUserToken.expireTimeMs);
+        writer.name("token").value(xblUserToken.token);
+        writer.name("userHash").value(xblUserToken.userHash);
+        this.writePrevJson(writer, xblUserToken.initialXblSession, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected XblUserToken readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        long expireTimeMs = 0;
+        String token = null;
+        String userHash = null;
+        StepInitialXblSession.InitialXblSession initialXblSession = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                initialXblSession = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "expireTimeMs":
+                    expireTimeMs = reader.nextLong();
+                    break;
+                case "token":
+                    token = reader.nextString();
+                    break;
+                case "userHash":
+                    userHash = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new XblUserToken(expireTimeMs, token, userHash, initialXblSession);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class XblUserToken extends AbstractStep.StepResult<StepInitialXblSession.InitialXblSession> {
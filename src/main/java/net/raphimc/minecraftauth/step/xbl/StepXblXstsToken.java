@@ -20,6 +20,8 @@ package net.raphimc.minecraftauth.step.xbl;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -32,8 +34,11 @@ import net.raphimc.minecraftauth.step.xbl.session.StepInitialXblSession;
 import net.raphimc.minecraftauth.util.CryptUtil;
 import net.raphimc.minecraftauth.util.JsonContent;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
 
 public class StepXblXstsToken extends AbstractStep<StepFullXblSession.FullXblSession, StepXblXstsToken.XblXstsToken> {
 
@@ -51,6 +56,11 @@ public class StepXblXstsToken extends AbstractStep<StepFullXblSession.FullXblSes
         this.relyingParty = relyingParty;
     }
 
+    @Override
+    public List<String> getRequestUrls() {
+        return Collections.singletonList(XBL_XSTS_URL);
+    }
+
     @Override
     public XblXstsToken applyStep(final HttpClient httpClient, final StepFullXblSession.FullXblSession fullXblSession) throws Exception {
         MinecraftAuth.LOGGER.info("Requesting XSTS Token...");
@@ -75,12 +85,12 @@ public class StepXblXstsToken extends AbstractStep<StepFullXblSession.FullXblSes
         if (fullXblSession.getXblTitleToken() != null) {
             postRequest.setHeader(CryptUtil.getSignatureHeader(postRequest, fullXblSession.getXblTitleToken().getInitialXblSession().getXblDeviceToken().getPrivateKey()));
         }
-        final JsonObject obj = httpClient.execute(postRequest, new XblResponseHandler());
+        final String[] fields = httpClient.execute(postRequest, new XblResponseHandler().fields("NotAfter", "Token", "DisplayClaims.xui.0.uhs"));
 
         final XblXstsToken xblXstsToken = new XblXstsToken(
-                Instant.parse(obj.get("NotAfter").getAsString()).toEpochMilli(),
-                obj.get("Token").getAsString(),
-                obj.getAsJsonObject("DisplayClaims").getAsJsonArray("xui").get(0).getAsJsonObject().get("uhs").getAsString(),
+                Instant.parse(fields[0]).toEpochMilli(),
+                fields[1],
+                fields[2],
                 fullXblSession
         );
         MinecraftAuth.LOGGER.info("Got XSTS Token, expires: " + Instant.ofEpochMilli(xblXstsToken.getExpireTimeMs()).atZone(ZoneId.systemDefault()));
@@ -108,6 +118,47 @@ public class StepXblXstsToken extends AbstractStep<StepFullXblSession.FullXblSes
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final XblXstsToken xblXstsToken, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        writer.name("expireTimeMs").value(xblXstsToken.expireTimeMs);
+        writer.name("token").value(xblXstsToken.token);
+        writer.name("userHash").value(xblXstsToken.userHash);
+        this.writePrevJson(writer, xblXstsToken.fullXblSession, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected XblXstsToken readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        long expireTimeMs = 0;
+        String token = null;
+        String userHash = null;
+        StepFullXblSession.FullXblSession fullXblSession = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                fullXblSession = this.readPrevJson(reader, providedStep, providedResult);
+                continue;
+            }
+            switch (name) {
+                case "expireTimeMs":
+                    expireTimeMs = reader.nextLong();
+                    break;
+                case "token":
+                    token = reader.nextString();
+                    break;
+                case "userHash":
+                    userHash = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new XblXstsToken(expireTimeMs, token, userHash, fullXblSession);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class XblXstsToken extends XblXsts<StepFullXblSession.FullXblSession> {
@@ -18,11 +18,18 @@
 package net.raphimc.minecraftauth.step.xbl.adapter;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import net.lenni0451.commons.httpclient.HttpClient;
 import net.raphimc.minecraftauth.step.AbstractStep;
+import net.raphimc.minecraftauth.step.RefreshPlan;
 import net.raphimc.minecraftauth.step.xbl.StepXblXstsToken;
 import net.raphimc.minecraftauth.step.xbl.session.StepFullXblSession;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public class StepXblXstsToFullXblSession extends AbstractStep<StepXblXstsToken.XblXsts<?>, StepFullXblSession.FullXblSession> {
 
     public StepXblXstsToFullXblSession(final AbstractStep<?, ? extends StepXblXstsToken.XblXsts<?>> prevStep) {
@@ -35,9 +42,21 @@ public class StepXblXstsToFullXblSession extends AbstractStep<StepXblXstsToken.X
     }
 
     @Override
-    public StepFullXblSession.FullXblSession refresh(final HttpClient httpClient, final StepFullXblSession.FullXblSession fullXblSession) throws Exception {
+    public StepFullXblSession.FullXblSession refresh(final HttpClient httpClient, final StepFullXblSession.FullXblSession fullXblSession, final long refreshAheadMs) throws Exception {
+        final FullXblSessionWrapper fullXblSessionWrapper = (FullXblSessionWrapper) fullXblSession;
+        return new FullXblSessionWrapper(this.prevStep.refresh(httpClient, fullXblSessionWrapper.xblXsts, refreshAheadMs));
+    }
+
+    @Override
+    public CompletableFuture<StepFullXblSession.FullXblSession> refreshAsync(final HttpClient httpClient, final StepFullXblSession.FullXblSession fullXblSession, final Executor executor, final boolean parallel) {
         final FullXblSessionWrapper fullXblSessionWrapper = (FullXblSessionWrapper) fullXblSession;
-        return new FullXblSessionWrapper(this.prevStep.refresh(httpClient, fullXblSessionWrapper.xblXsts));
+        return this.prevStep.refreshAsync(httpClient, fullXblSessionWrapper.xblXsts, executor, parallel).thenApply(FullXblSessionWrapper::new);
+    }
+
+    @Override
+    public RefreshPlan planRefresh(final StepFullXblSession.FullXblSession fullXblSession, final long refreshAheadMs) {
+        final FullXblSessionWrapper fullXblSessionWrapper = (FullXblSessionWrapper) fullXblSession;
+        return this.prevStep.planRefresh(fullXblSessionWrapper.xblXsts, refreshAheadMs);
     }
 
     @Override
@@ -53,6 +72,29 @@ public class StepXblXstsToFullXblSession extends AbstractStep<StepXblXstsToken.X
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final StepFullXblSession.FullXblSession fullXblSession, final AbstractStep<?, ?> omittedStep) throws IOException {
+        final FullXblSessionWrapper fullXblSessionWrapper = (FullXblSessionWrapper) fullXblSession;
+        writer.beginObject();
+        this.writePrevJson(writer, fullXblSessionWrapper.xblXsts, omittedStep);
+        writer.endObject();
+    }
+
+    @Override
+    protected StepFullXblSession.FullXblSession readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        StepXblXstsToken.XblXsts<?> xblXsts = this.getProvidedPrevResult(providedStep, providedResult);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (this.isPrevStepName(reader.nextName())) {
+                xblXsts = this.readPrevJson(reader, providedStep, providedResult);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new FullXblSessionWrapper(xblXsts);
+    }
+
     private static class FullXblSessionWrapper extends StepFullXblSession.FullXblSession {
 
         private final StepXblXstsToken.XblXsts<?> xblXsts;
@@ -63,6 +105,11 @@ public class StepXblXstsToFullXblSession extends AbstractStep<StepXblXstsToken.X
             this.xblXsts = xblXsts;
         }
 
+        @Override
+        public long getExpireTimeMs() {
+            return this.xblXsts.getExpireTimeMs();
+        }
+
     }
 
 }
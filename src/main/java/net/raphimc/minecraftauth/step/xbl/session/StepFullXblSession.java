@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.xbl.session;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
@@ -29,6 +31,8 @@ import net.raphimc.minecraftauth.step.SameInputBiMergeStep;
 import net.raphimc.minecraftauth.step.xbl.StepXblTitleToken;
 import net.raphimc.minecraftauth.step.xbl.StepXblUserToken;
 
+import java.io.IOException;
+
 public class StepFullXblSession extends SameInputBiMergeStep<StepXblUserToken.XblUserToken, StepXblTitleToken.XblTitleToken, StepFullXblSession.FullXblSession> {
 
     public StepFullXblSession(final AbstractStep<?, StepXblUserToken.XblUserToken> prevStep1, final AbstractStep<?, StepXblTitleToken.XblTitleToken> prevStep2) {
@@ -55,6 +59,16 @@ public class StepFullXblSession extends SameInputBiMergeStep<StepXblUserToken.Xb
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final FullXblSession fullXblSession, final AbstractStep<?, ?> omittedStep) throws IOException {
+        this.writeMergedJson(writer, fullXblSession, omittedStep);
+    }
+
+    @Override
+    protected FullXblSession readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        return this.readMergedJson(reader, providedStep, providedResult, FullXblSession::new);
+    }
+
     @Value
     @NonFinal
     @AllArgsConstructor
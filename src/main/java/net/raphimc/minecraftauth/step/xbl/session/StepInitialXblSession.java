@@ -18,6 +18,8 @@
 package net.raphimc.minecraftauth.step.xbl.session;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.lenni0451.commons.httpclient.HttpClient;
@@ -26,6 +28,8 @@ import net.raphimc.minecraftauth.step.BiMergeStep;
 import net.raphimc.minecraftauth.step.msa.StepMsaToken;
 import net.raphimc.minecraftauth.step.xbl.StepXblDeviceToken;
 
+import java.io.IOException;
+
 public class StepInitialXblSession extends BiMergeStep<StepMsaToken.MsaToken, StepXblDeviceToken.XblDeviceToken, StepInitialXblSession.InitialXblSession> {
 
     public StepInitialXblSession(final AbstractStep<?, StepMsaToken.MsaToken> prevStep1, final AbstractStep<?, StepXblDeviceToken.XblDeviceToken> prevStep2) {
@@ -52,6 +56,33 @@ public class StepInitialXblSession extends BiMergeStep<StepMsaToken.MsaToken, St
         return json;
     }
 
+    @Override
+    protected void writeJson(final JsonWriter writer, final InitialXblSession initialXblSession, final AbstractStep<?, ?> omittedStep) throws IOException {
+        writer.beginObject();
+        this.writePrevJson(writer, initialXblSession.msaToken, omittedStep);
+        this.writePrevJson2(writer, initialXblSession.xblDeviceToken);
+        writer.endObject();
+    }
+
+    @Override
+    protected InitialXblSession readJson(final JsonReader reader, final AbstractStep<?, ?> providedStep, final AbstractStep.StepResult<?> providedResult) throws IOException {
+        StepMsaToken.MsaToken msaToken = this.getProvidedPrevResult(providedStep, providedResult);
+        StepXblDeviceToken.XblDeviceToken xblDeviceToken = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (this.isPrevStepName(name)) {
+                msaToken = this.readPrevJson(reader, providedStep, providedResult);
+            } else if (this.isPrevStep2Name(name)) {
+                xblDeviceToken = this.readPrevJson2(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new InitialXblSession(msaToken, xblDeviceToken);
+    }
+
     @Value
     @EqualsAndHashCode(callSuper = false)
     public static class InitialXblSession extends BiMergeStep.StepResult<StepMsaToken.MsaToken, StepXblDeviceToken.XblDeviceToken> {
@@ -0,0 +1,412 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.store;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import net.raphimc.minecraftauth.MinecraftAuth;
+import net.raphimc.minecraftauth.step.AbstractStep;
+import net.raphimc.minecraftauth.util.BinaryJsonCodec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the token chains of many accounts in a directory.<br>
+ * The results of the steps are stored separately (See {@link AbstractStep#toFlatJson(AbstractStep.StepResult)}) and saving an account only appends the results which have changed to a log.
+ * A refresh which only renewed the Minecraft token writes a few hundred bytes instead of the whole chain.
+ * Once the log has grown large enough, the complete state is written to a checkpoint and the log is cleared.<br>
+ * Every write is synced to disk before the method returns. A write which was interrupted by a crash is discarded when the store is opened again.
+ */
+public class AccountStore implements Closeable {
+
+    private static final String CHECKPOINT_FILE = "accounts.checkpoint";
+    private static final String LOG_FILE = "accounts.log";
+    private static final int FLAT_JSON_VERSION = 1;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final FileChannel logChannel;
+    private final FileLock lock;
+    private final Map<String, Map<String, JsonObject>> accounts = new LinkedHashMap<>();
+    private long compactionThreshold = 1024 * 1024;
+
+    /**
+     * Opens the store in the given directory and loads all accounts. The directory is created if it doesn't exist.
+     *
+     * @param directory The directory
+     * @throws IOException If the store couldn't be loaded or is used by another process
+     */
+    public AccountStore(final Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        this.logChannel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.lock = this.logChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            this.logChannel.close();
+            throw new IOException("Account store is already opened", e);
+        }
+        if (this.lock == null) {
+            this.logChannel.close();
+            throw new IOException("Account store is used by another process");
+        }
+
+        try {
+            this.load();
+        } catch (Throwable e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Saves the result of the given step chain. Only the results of steps which have changed since the last save are written.
+     *
+     * @param accountId The id of the account
+     * @param step      The step chain
+     * @param result    The result of the step chain
+     */
+    public synchronized <O extends AbstractStep.StepResult<?>> void save(final String accountId, final AbstractStep<?, O> step, final O result) throws IOException {
+        final JsonObject results = step.toFlatJson(result).getAsJsonObject("results");
+        final Map<String, JsonObject> storedResults = this.accounts.getOrDefault(accountId, Collections.emptyMap());
+
+        final JsonObject changedResults = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : results.entrySet()) {
+            if (!entry.getValue().equals(storedResults.get(entry.getKey()))) {
+                changedResults.add(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String stepId : storedResults.keySet()) {
+            if (!results.has(stepId)) {
+                changedResults.add(stepId, JsonNull.INSTANCE);
+            }
+        }
+        if (changedResults.size() == 0 && this.accounts.containsKey(accountId)) {
+            return;
+        }
+
+        final JsonObject record = new JsonObject();
+        record.addProperty("account", accountId);
+        record.add("results", changedResults);
+        this.append(record);
+    }
+
+    /**
+     * Loads the result of the given step chain
+     *
+     * @param accountId The id of the account
+     * @param step      The step chain the account was saved with
+     * @return The result or null if the account doesn't exist
+     */
+    public synchronized <O extends AbstractStep.StepResult<?>> O load(final String accountId, final AbstractStep<?, O> step) {
+        final Map<String, JsonObject> storedResults = this.accounts.get(accountId);
+        if (storedResults == null) {
+            return null;
+        }
+
+        final JsonObject results = new JsonObject();
+        for (Map.Entry<String, JsonObject> entry : storedResults.entrySet()) {
+            results.add(entry.getKey(), entry.getValue());
+        }
+        final JsonObject json = new JsonObject();
+        json.addProperty("version", FLAT_JSON_VERSION);
+        json.add("results", results);
+        return step.fromFlatJson(json);
+    }
+
+    /**
+     * Removes an account from the store
+     *
+     * @param accountId The id of the account
+     * @return True if the account existed
+     */
+    public synchronized boolean remove(final String accountId) throws IOException {
+        if (!this.accounts.containsKey(accountId)) {
+            return false;
+        }
+
+        final JsonObject record = new JsonObject();
+        record.addProperty("account", accountId);
+        record.addProperty("removed", true);
+        this.append(record);
+        return true;
+    }
+
+    /**
+     * @return The ids of all stored accounts
+     */
+    public synchronized Set<String> getAccountIds() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(this.accounts.keySet()));
+    }
+
+    /**
+     * Writes the complete state to a new checkpoint and clears the log. This is done automatically once the log is larger than the compaction threshold.<br>
+     * The checkpoint is written to a temporary file which replaces the old checkpoint once it has been synced to disk and read back, so there is always a complete checkpoint.
+     * It contains one record per account followed by a record with the amount of accounts.
+     */
+    public synchronized void compact() throws IOException {
+        final Path checkpointFile = this.directory.resolve(CHECKPOINT_FILE);
+        final Path tempFile = this.directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            for (Map.Entry<String, Map<String, JsonObject>> account : this.accounts.entrySet()) {
+                final JsonObject results = new JsonObject();
+                for (Map.Entry<String, JsonObject> entry : account.getValue().entrySet()) {
+                    results.add(entry.getKey(), entry.getValue());
+                }
+                final JsonObject record = new JsonObject();
+                record.addProperty("account", account.getKey());
+                record.add("results", results);
+                writeRecord(out, record);
+            }
+            final JsonObject end = new JsonObject();
+            end.addProperty("accounts", this.accounts.size());
+            writeRecord(out, end);
+            out.flush();
+            channel.force(true);
+        }
+        if (readCheckpoint(tempFile, record -> {
+        }) != this.accounts.size()) {
+            throw new IOException("Written account store checkpoint is incomplete");
+        }
+        Files.move(tempFile, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.syncDirectory();
+
+        // Replaying records which are already contained in the checkpoint doesn't change anything, so a crash before this point loses nothing
+        this.logChannel.truncate(0);
+        this.logChannel.position(0);
+        this.logChannel.force(true);
+    }
+
+    /**
+     * Sets the size of the log in bytes after which the store is compacted
+     *
+     * @param compactionThreshold The size in bytes
+     */
+    public synchronized void setCompactionThreshold(final long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * @return The size of the log in bytes
+     */
+    public synchronized long getLogSize() throws IOException {
+        return this.logChannel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!this.logChannel.isOpen()) {
+            return;
+        }
+        try {
+            if (this.lock != null) {
+                this.lock.release();
+            }
+        } finally {
+            this.logChannel.close();
+        }
+    }
+
+    private void load() throws IOException {
+        final Path checkpointFile = this.directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointFile)) {
+            readCheckpoint(checkpointFile, this::apply);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(this.logChannel.size(), Integer.MAX_VALUE));
+        this.logChannel.position(0);
+        while (buffer.hasRemaining() && this.logChannel.read(buffer) >= 0) {
+        }
+        buffer.flip();
+        JsonObject record;
+        while ((record = decodeRecord(buffer)) != null) {
+            this.apply(record);
+        }
+        if (buffer.hasRemaining()) { // The last write was interrupted
+            MinecraftAuth.LOGGER.warn("Discarding " + buffer.remaining() + " bytes of an incomplete account store write");
+            this.logChannel.truncate(buffer.position());
+            this.logChannel.force(true);
+        }
+        this.logChannel.position(buffer.position());
+    }
+
+    private void append(final JsonObject record) throws IOException {
+        final long position = this.logChannel.position();
+        try {
+            writeFully(this.logChannel, encodeRecord(record));
+            this.logChannel.force(false);
+        } catch (IOException e) { // Remove the partially written record, as records after it would be discarded when loading
+            try {
+                this.logChannel.truncate(position);
+                this.logChannel.position(position);
+            } catch (IOException e2) {
+                e.addSuppressed(e2);
+                this.close(); // The log can't be repaired, so further writes are rejected
+            }
+            throw e;
+        }
+        this.apply(record);
+
+        if (this.logChannel.size() >= this.compactionThreshold) {
+            try {
+                this.compact();
+            } catch (IOException e) { // The record is already stored in the log, so the save succeeded
+                MinecraftAuth.LOGGER.error("Failed to compact account store: " + e.getMessage());
+            }
+        }
+    }
+
+    private void apply(final JsonObject record) {
+        final String accountId = record.get("account").getAsString();
+        if (record.has("removed")) {
+            this.accounts.remove(accountId);
+            return;
+        }
+
+        final Map<String, JsonObject> results = this.accounts.computeIfAbsent(accountId, k -> new LinkedHashMap<>());
+        for (Map.Entry<String, JsonElement> entry : record.getAsJsonObject("results").entrySet()) {
+            if (entry.getValue().isJsonNull()) {
+                results.remove(entry.getKey());
+            } else {
+                results.put(entry.getKey(), entry.getValue().getAsJsonObject());
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) { // Not supported on all platforms
+        }
+    }
+
+    /**
+     * Reads the records of a checkpoint written by {@link #compact()}
+     *
+     * @return The amount of accounts in the checkpoint
+     * @throws IOException If the checkpoint is incomplete or corrupted
+     */
+    private static int readCheckpoint(final Path file, final Consumer<JsonObject> recordConsumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = 0;
+            while (true) {
+                final JsonObject record = readRecord(in);
+                if (record.has("accounts")) {
+                    if (record.get("accounts").getAsInt() != count || in.read() != -1) {
+                        throw new IOException("Account store checkpoint is corrupted");
+                    }
+                    return count;
+                }
+                recordConsumer.accept(record);
+                count++;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Account store checkpoint is incomplete", e);
+        }
+    }
+
+    private static JsonObject readRecord(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        final int checksum = in.readInt();
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            throw new IOException("Account store checkpoint is corrupted");
+        }
+        final byte[] data = new byte[length];
+        in.readFully(data);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Account store checkpoint is corrupted");
+        }
+        try {
+            return BinaryJsonCodec.fromBytes(data).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Account store checkpoint is corrupted", e);
+        }
+    }
+
+    private static void writeRecord(final OutputStream out, final JsonObject record) throws IOException {
+        final ByteBuffer buffer = encodeRecord(record);
+        out.write(buffer.array(), 0, buffer.limit());
+    }
+
+    private static ByteBuffer encodeRecord(final JsonObject record) {
+        final byte[] data = BinaryJsonCodec.toBytes(record);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2 + data.length);
+        buffer.putInt(data.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return The record or null if the buffer doesn't start with a complete and valid record. The position of the buffer is only advanced if a record was read.
+     */
+    private static JsonObject decodeRecord(final ByteBuffer buffer) {
+        if (buffer.remaining() < Integer.BYTES * 2) {
+            return null;
+        }
+        final int start = buffer.position();
+        final int length = buffer.getInt(start);
+        final int checksum = buffer.getInt(start + Integer.BYTES);
+        if (length < 0 || length > MAX_RECORD_SIZE || buffer.remaining() - Integer.BYTES * 2 < length) {
+            return null;
+        }
+
+        final byte[] data = new byte[length];
+        buffer.position(start + Integer.BYTES * 2);
+        buffer.get(data);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        try {
+            return BinaryJsonCodec.fromBytes(data).getAsJsonObject();
+        } catch (RuntimeException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util;
+
+import com.google.gson.*;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Converts json trees to a compact binary format and back without losing any information.<br>
+ * Property names are written once and referenced by index afterwards. The names used by the built in steps are part of the format and are never written at all.
+ * Numbers are written as varints, base64 strings (keys, signatures) as their raw bytes and UUID strings as 16 bytes.
+ */
+public class BinaryJsonCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4D41424A; // MABJ
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int LONG = 3;
+    private static final int DOUBLE = 4;
+    private static final int NUMBER = 5;
+    private static final int STRING = 6;
+    private static final int BASE64 = 7;
+    private static final int UUID_STRING = 8;
+    private static final int OBJECT = 9;
+    private static final int ARRAY = 10;
+
+    /**
+     * The names known by version 1 of the format. This list must only be changed together with the version.
+     */
+    private static final List<String> NAMES_V1 = Collections.unmodifiableList(Arrays.asList(
+            // Step names
+            "msaCode", "msaToken", "xblDeviceToken", "initialXblSession", "xblUserToken", "titleToken", "fullXblSession", "xblXstsToken", "xblSisuAuthentication",
+            "mcToken", "mcProfile", "playerCertificates", "fullJavaSession", "mcChain", "playFabToken", "xblXstsToFullXblSession", "realmsXsts", "fullBedrockSession", "eduJwt",
+            // Result fields
+            "expireTimeMs", "accessToken", "refreshToken", "code", "clientId", "scope", "clientSecret", "redirectUri", "oAuthEnvironment", "publicKey", "privateKey",
+            "id", "token", "deviceId", "titleId", "userHash", "userToken", "xstsToken", "tokenType", "name", "skinUrl", "publicKeySignature", "legacyPublicKeySignature",
+            "mojangJwt", "identityJwt", "xuid", "displayName", "entityToken", "entityId", "sessionTicket", "playFabId", "jwt"
+    ));
+    private static final Map<String, Integer> NAME_INDICES_V1 = new HashMap<>();
+    private static final int MIN_BASE64_LENGTH = 16;
+
+    static {
+        for (int i = 0; i < NAMES_V1.size(); i++) {
+            NAME_INDICES_V1.put(NAMES_V1.get(i), i);
+        }
+    }
+
+    public static byte[] toBytes(final JsonElement json) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
+        try {
+            write(json, baos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    public static JsonElement fromBytes(final byte[] data) {
+        try {
+            return read(new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void write(final JsonElement json, final OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        writeVarInt(out, VERSION);
+        writeElement(out, json, new HashMap<>()); // Names which are not part of the format
+        out.flush();
+    }
+
+    public static JsonElement read(final InputStream inputStream) throws IOException {
+        final DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary json file");
+        }
+        final int version = readVarInt(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary json version: " + version);
+        }
+        return readElement(in, new ArrayList<>(NAMES_V1));
+    }
+
+    private static void writeElement(final DataOutputStream out, final JsonElement element, final Map<String, Integer> names) throws IOException {
+        if (element == null || element.isJsonNull()) {
+            out.writeByte(NULL);
+        } else if (element.isJsonObject()) {
+            final Set<Map.Entry<String, JsonElement>> entries = element.getAsJsonObject().entrySet();
+            out.writeByte(OBJECT);
+            writeVarInt(out, entries.size());
+            for (Map.Entry<String, JsonElement> entry : entries) {
+                writeName(out, entry.getKey(), names);
+                writeElement(out, entry.getValue(), names);
+            }
+        } else if (element.isJsonArray()) {
+            final JsonArray array = element.getAsJsonArray();
+            out.writeByte(ARRAY);
+            writeVarInt(out, array.size());
+            for (JsonElement arrayElement : array) {
+                writeElement(out, arrayElement, names);
+            }
+        } else {
+            final JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                writeNumber(out, primitive.getAsNumber());
+            } else {
+                writeString(out, primitive.getAsString());
+            }
+        }
+    }
+
+    private static JsonElement readElement(final DataInputStream in, final List<String> names) throws IOException {
+        final int type = in.readUnsignedByte();
+        switch (type) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case FALSE:
+                return new JsonPrimitive(false);
+            case TRUE:
+                return new JsonPrimitive(true);
+            case LONG:
+                return new JsonPrimitive(readVarLong(in));
+            case DOUBLE:
+                return new JsonPrimitive(in.readDouble());
+            case NUMBER:
+                return new JsonPrimitive(new LazilyParsedNumber(readUtf(in)));
+            case STRING:
+                return new JsonPrimitive(readUtf(in));
+            case BASE64:
+                return new JsonPrimitive(Base64.getEncoder().encodeToString(readBytes(in)));
+            case UUID_STRING:
+                return new JsonPrimitive(new UUID(in.readLong(), in.readLong()).toString());
+            case OBJECT: {
+                final int size = readVarInt(in);
+                final JsonObject object = new JsonObject();
+                for (int i = 0; i < size; i++) {
+                    final String name = readName(in, names);
+                    object.add(name, readElement(in, names));
+                }
+                return object;
+            }
+            case ARRAY: {
+                final int size = readVarInt(in);
+                final JsonArray array = new JsonArray(size);
+                for (int i = 0; i < size; i++) {
+                    array.add(readElement(in, names));
+                }
+                return array;
+            }
+            default:
+                throw new IOException("Unknown binary json type: " + type);
+        }
+    }
+
+    private static void writeNumber(final DataOutputStream out, final Number number) throws IOException {
+        final String string = number.toString();
+        if (number instanceof Double && !Double.isNaN((Double) number) && !Double.isInfinite((Double) number)) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) number);
+            return;
+        }
+        try {
+            final long value = Long.parseLong(string);
+            if (Long.toString(value).equals(string)) {
+                out.writeByte(LONG);
+                writeVarLong(out, value);
+                return;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        out.writeByte(NUMBER); // Keep the exact textual representation
+        writeUtf(out, string);
+    }
+
+    private static void writeString(final DataOutputStream out, final String string) throws IOException {
+        if (string.length() == 36 && string.charAt(8) == '-') {
+            try {
+                final UUID uuid = UUID.fromString(string);
+                if (uuid.toString().equals(string)) {
+                    out.writeByte(UUID_STRING);
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                    return;
+                }
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        if (string.length() >= MIN_BASE64_LENGTH && string.length() % 4 == 0) {
+            try {
+                final byte[] bytes = Base64.getDecoder().decode(string);
+                if (Base64.getEncoder().encodeToString(bytes).equals(string)) {
+                    out.writeByte(BASE64);
+                    writeVarInt(out, bytes.length);
+                    out.write(bytes);
+                    return;
+                }
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        out.writeByte(STRING);
+        writeUtf(out, string);
+    }
+
+    private static void writeName(final DataOutputStream out, final String name, final Map<String, Integer> names) throws IOException {
+        Integer index = NAME_INDICES_V1.get(name);
+        if (index == null) {
+            index = names.get(name);
+        }
+        if (index != null) {
+            writeVarInt(out, index + 1);
+        } else { // Define the name, it gets the next free index
+            writeVarInt(out, 0);
+            writeUtf(out, name);
+            names.put(name, NAMES_V1.size() + names.size());
+        }
+    }
+
+    private static String readName(final DataInputStream in, final List<String> names) throws IOException {
+        final int index = readVarInt(in);
+        if (index == 0) {
+            final String name = readUtf(in);
+            names.add(name);
+            return name;
+        } else if (index > names.size()) {
+            throw new IOException("Unknown binary json name index: " + index);
+        }
+        return names.get(index - 1);
+    }
+
+    private static void writeUtf(final DataOutputStream out, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readUtf(final DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+        writeUnsignedVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        final long value = readUnsignedVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Binary json varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+        writeUnsignedVarLong(out, (value << 1) ^ (value >> 63)); // Zigzag encoding keeps small negative numbers short
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        final long zigZag = readUnsignedVarLong(in);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    private static void writeUnsignedVarLong(final DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readUnsignedVarLong(final DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Binary json varint is too long");
+    }
+
+}
@@ -18,19 +18,12 @@
 package net.raphimc.minecraftauth.util;
 
 import com.google.gson.JsonObject;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.impl.security.DefaultSecureRequest;
-import net.lenni0451.commons.httpclient.content.HttpContent;
 import net.lenni0451.commons.httpclient.model.HttpHeader;
-import net.lenni0451.commons.httpclient.requests.HttpContentRequest;
 import net.lenni0451.commons.httpclient.requests.HttpRequest;
+import net.raphimc.minecraftauth.util.keypair.KeyCodec;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
@@ -38,15 +31,19 @@ import java.security.PublicKey;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
-import java.time.Instant;
 import java.util.Base64;
-import java.util.Optional;
 
 public class CryptUtil {
 
+    /**
+     * @deprecated KeyFactory instances are not guaranteed to be thread safe. Use {@link KeyCodec} instead.
+     */
+    @Deprecated
     public static final KeyFactory RSA_KEYFACTORY;
+    /**
+     * @deprecated KeyFactory instances are not guaranteed to be thread safe. Use {@link KeyCodec} instead.
+     */
+    @Deprecated
     public static final KeyFactory EC_KEYFACTORY;
 
     static {
@@ -64,7 +61,7 @@ public class CryptUtil {
 
     public static <T extends PublicKey> T publicKeyEcFromBase64(final String base64) {
         try {
-            return (T) EC_KEYFACTORY.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            return KeyCodec.decodeEcPublicKey(Base64.getDecoder().decode(base64));
         } catch (InvalidKeySpecException e) {
             throw new RuntimeException("Could not decode base64 public key", e);
         }
@@ -72,7 +69,7 @@ public class CryptUtil {
 
     public static <T extends PrivateKey> T privateKeyEcFromBase64(final String base64) {
         try {
-            return (T) EC_KEYFACTORY.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            return KeyCodec.decodeEcPrivateKey(Base64.getDecoder().decode(base64));
         } catch (InvalidKeySpecException e) {
             throw new RuntimeException("Could not decode base64 private key", e);
         }
@@ -80,7 +77,7 @@ public class CryptUtil {
 
     public static <T extends PublicKey> T publicKeyRsaFromBase64(final String base64) {
         try {
-            return (T) RSA_KEYFACTORY.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            return KeyCodec.decodeRsaPublicKey(Base64.getDecoder().decode(base64));
         } catch (InvalidKeySpecException e) {
             throw new RuntimeException("Could not decode base64 public key", e);
         }
@@ -88,45 +85,14 @@ public class CryptUtil {
 
     public static <T extends PrivateKey> T privateKeyRsaFromBase64(final String base64) {
         try {
-            return (T) RSA_KEYFACTORY.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            return KeyCodec.decodeRsaPrivateKey(Base64.getDecoder().decode(base64));
         } catch (InvalidKeySpecException e) {
             throw new RuntimeException("Could not decode base64 private key", e);
         }
     }
 
     public static HttpHeader getSignatureHeader(final HttpRequest httpRequest, final ECPrivateKey privateKey) throws IOException {
-        final long windowsTimestamp = (Instant.now().plus(TimeUtil.getClientTimeOffset()).getEpochSecond() + 11644473600L) * 10000000L;
-
-        final ByteArrayOutputStream signatureContent = new ByteArrayOutputStream();
-        DataOutputStream data = new DataOutputStream(signatureContent);
-        data.writeInt(1); // Policy Version
-        data.writeByte(0); // 0 byte
-        data.writeLong(windowsTimestamp); // Timestamp
-        data.writeByte(0); // 0 byte
-        data.write(httpRequest.getMethod().getBytes(StandardCharsets.UTF_8)); // HTTP Method
-        data.writeByte(0); // 0 byte
-        data.write((httpRequest.getURL().getPath() + (httpRequest.getURL().getQuery() != null ? httpRequest.getURL().getQuery() : "")).getBytes(StandardCharsets.UTF_8));
-        data.writeByte(0); // 0 byte
-        final Optional<String> authorizationHeader = httpRequest.getFirstHeader("Authorization");
-        if (authorizationHeader.isPresent()) {
-            data.write(authorizationHeader.get().getBytes(StandardCharsets.UTF_8)); // Authorization Header
-        }
-        data.writeByte(0); // 0 byte
-        if (httpRequest instanceof HttpContentRequest) {
-            final HttpContent content = ((HttpContentRequest) httpRequest).getContent();
-            if (content != null) {
-                data.write(content.getAsBytes());
-            }
-        }
-        data.writeByte(0); // 0 byte
-
-        final ByteArrayOutputStream header = new ByteArrayOutputStream();
-        data = new DataOutputStream(header);
-        data.writeInt(1); // Policy Version
-        data.writeLong(windowsTimestamp); // Timestamp
-        data.write(Jwts.SIG.ES256.digest(new DefaultSecureRequest<>(new ByteArrayInputStream(signatureContent.toByteArray()), null, null, privateKey))); // Signature
-
-        return new HttpHeader("Signature", Base64.getEncoder().encodeToString(header.toByteArray()));
+        return XblRequestSigner.getSignatureHeader(httpRequest, privateKey);
     }
 
     public static JsonObject getProofKey(final ECPublicKey publicKey) {
@@ -20,6 +20,17 @@ package net.raphimc.minecraftauth.util;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.lenni0451.commons.httpclient.HttpResponse;
+import net.lenni0451.commons.httpclient.model.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public class JsonUtil {
 
@@ -29,6 +40,114 @@ public class JsonUtil {
         return GSON.fromJson(json, JsonElement.class);
     }
 
+    public static JsonElement parseReader(final JsonReader reader) {
+        return GSON.fromJson(reader, JsonElement.class);
+    }
+
+    /**
+     * Creates a reader which decodes the response body while reading instead of converting it to a string first
+     *
+     * @param response The response
+     * @return The reader
+     */
+    public static JsonReader createReader(final HttpResponse response) {
+        final Charset charset = response.getContentType().flatMap(ContentType::getCharset).orElse(StandardCharsets.UTF_8);
+        return new JsonReader(new InputStreamReader(new ByteArrayInputStream(response.getContent()), charset));
+    }
+
+    public static String nextStringOrNull(final JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        } else {
+            return reader.nextString();
+        }
+    }
+
+    /**
+     * Reads only the values at the given paths and skips everything else.<br>
+     * Path segments are separated by dots and array elements are addressed by their index (For example {@code DisplayClaims.xui.0.uhs}).
+     *
+     * @param reader The reader
+     * @param paths  The paths of the values
+     * @return The values in the order of the paths. Missing values, null values and objects are null.
+     * @throws IOException If the json is invalid
+     */
+    public static String[] readFields(final JsonReader reader, final String... paths) throws IOException {
+        final String[] values = new String[paths.length];
+        readFields(reader, "", paths, values);
+        return values;
+    }
+
+    private static void readFields(final JsonReader reader, final String path, final String[] paths, final String[] values) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    final String childPath = path.isEmpty() ? reader.nextName() : path + "." + reader.nextName();
+                    if (isPathPrefix(childPath, paths)) {
+                        readFields(reader, childPath, paths, values);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                for (int i = 0; reader.hasNext(); i++) {
+                    final String childPath = path.isEmpty() ? String.valueOf(i) : path + "." + i;
+                    if (isPathPrefix(childPath, paths)) {
+                        readFields(reader, childPath, paths, values);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endArray();
+                break;
+            case NULL:
+                reader.nextNull();
+                break;
+            case BOOLEAN:
+                setField(path, String.valueOf(reader.nextBoolean()), paths, values);
+                break;
+            default:
+                setField(path, reader.nextString(), paths, values);
+                break;
+        }
+    }
+
+    private static boolean isPathPrefix(final String path, final String[] paths) {
+        for (String p : paths) {
+            if (p.equals(path) || (p.startsWith(path) && p.charAt(path.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setField(final String path, final String value, final String[] paths, final String[] values) {
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i].equals(path)) {
+                values[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Copies the object without copying its values
+     *
+     * @param obj The object
+     * @return The copy
+     */
+    public static JsonObject shallowCopy(final JsonObject obj) {
+        final JsonObject copy = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : obj.entrySet()) {
+            copy.add(entry.getKey(), entry.getValue());
+        }
+        return copy;
+    }
+
     public static String getStringOr(final JsonObject obj, final String key, final String defaultValue) {
         final JsonElement element = obj.get(key);
         if (element != null && !element.isJsonNull()) {
@@ -0,0 +1,82 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A value which is computed on first access and then kept.<br>
+ * Used by step results which are loaded from json, so that their parts are only decoded when they are actually used.
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+    private volatile Supplier<T> supplier;
+    private volatile T value;
+
+    private Lazy(final Supplier<T> supplier, final T value) {
+        this.supplier = supplier;
+        this.value = value;
+    }
+
+    public static <T> Lazy<T> of(final Supplier<T> supplier) {
+        return new Lazy<>(supplier, null);
+    }
+
+    public static <T> Lazy<T> value(final T value) {
+        return new Lazy<>(null, value);
+    }
+
+    @Override
+    public T get() {
+        if (this.supplier != null) {
+            synchronized (this) {
+                if (this.supplier != null) {
+                    this.value = this.supplier.get();
+                    this.supplier = null; // Release the captured json
+                }
+            }
+        }
+        return this.value;
+    }
+
+    /**
+     * @return True if the value has been computed already
+     */
+    public boolean isInitialized() {
+        return this.supplier == null;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Lazy)) return false;
+        return Objects.equals(this.get(), ((Lazy<?>) o).get());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.get());
+    }
+
+    @Override
+    public String toString() {
+        return this.isInitialized() ? String.valueOf(this.value) : "<not loaded>";
+    }
+
+}
@@ -25,38 +25,119 @@ import net.raphimc.minecraftauth.MinecraftAuth;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class TimeUtil {
 
-    private static Duration CLIENT_TIME_OFFSET = null;
+    private static final double SMOOTHING_FACTOR = 0.25D;
+    private static final long WARN_THRESHOLD_MS = TimeUnit.MINUTES.toMillis(2);
+    private static final long SEED_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final Object SAMPLE_LOCK = new Object();
+    private static final AtomicBoolean SEED_STARTED = new AtomicBoolean();
+    private static final CompletableFuture<Void> SEED_FUTURE = new CompletableFuture<>();
+    private static volatile boolean HAS_SAMPLE = false;
+    private static volatile long CLIENT_TIME_OFFSET_MS = 0L;
+    private static boolean CLOCK_WARNING_LOGGED = false;
 
     /**
-     * Gets the time offset between the client and the microsoft server. This is used to calculate the correct time for authentication and signatures.
+     * Gets the time offset between the client and the microsoft server. This is used to calculate the correct time for authentication and signatures.<br>
+     * The offset is measured in the background and updated from the Date header of every response received by MinecraftAuth. Once a measurement is available, this method never blocks. Before that, it waits up to 5 seconds for the initial measurement and returns 0 if there still is none.
      *
      * @return The time offset between the client and the microsoft server
      */
-    public static synchronized Duration getClientTimeOffset() {
-        if (CLIENT_TIME_OFFSET == null) {
-            final HttpClient httpClient = MinecraftAuth.createHttpClient();
-            httpClient.getRetryHandler().setMaxConnectRetries(3);
+    public static Duration getClientTimeOffset() {
+        return Duration.ofMillis(getClientTimeOffsetMs());
+    }
+
+    /**
+     * @return The time offset between the client and the microsoft server in milliseconds
+     * @see #getClientTimeOffset()
+     */
+    public static long getClientTimeOffsetMs() {
+        if (!HAS_SAMPLE) {
+            seedClientTimeOffset();
             try {
-                final HttpResponse response = httpClient.execute(new GetRequest(OAuthEnvironment.LIVE.getBaseUrl()));
+                SEED_FUTURE.get(SEED_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ignored) {
+            }
+        }
 
-                final Instant clientTime = Instant.now();
-                final Instant serverTime = response.getFirstHeader("Date").map(s -> DateTimeFormatter.RFC_1123_DATE_TIME.parse(s, Instant::from)).get();
-                CLIENT_TIME_OFFSET = Duration.between(clientTime, serverTime);
+        return CLIENT_TIME_OFFSET_MS;
+    }
 
-                if (CLIENT_TIME_OFFSET.abs().compareTo(Duration.ofMinutes(2)) > 0) {
-                    MinecraftAuth.LOGGER.warn("Local clock is off by " + CLIENT_TIME_OFFSET.negated().toMinutes() + " minutes");
+    /**
+     * Starts the initial measurement of the client time offset in the background if it hasn't been started yet.
+     */
+    public static void seedClientTimeOffset() {
+        if (!SEED_STARTED.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Thread seedThread = new Thread(() -> {
+            try {
+                final HttpClient httpClient = MinecraftAuth.createHttpClient();
+                httpClient.getRetryHandler().setMaxConnectRetries(3);
+                final HttpResponse response = httpClient.execute(new GetRequest(OAuthEnvironment.LIVE.getBaseUrl()));
+                if (!updateClientTimeOffset(response)) {
+                    throw new IllegalStateException("Response has no Date header");
                 }
             } catch (Throwable e) {
                 MinecraftAuth.LOGGER.error("Failed to get client time offset. This may cause issues with authentication if the local clock is wrong.");
                 e.printStackTrace();
-                CLIENT_TIME_OFFSET = Duration.ZERO;
+            } finally {
+                SEED_FUTURE.complete(null);
             }
+        }, "MinecraftAuth Clock Offset");
+        seedThread.setDaemon(true);
+        seedThread.start();
+    }
+
+    /**
+     * Updates the client time offset using the Date header of the given response.
+     *
+     * @param response The response received from a microsoft or minecraft server
+     * @return True if the response contained a valid Date header
+     */
+    public static boolean updateClientTimeOffset(final HttpResponse response) {
+        final long clientTime = System.currentTimeMillis();
+        final Optional<String> dateHeader = response.getFirstHeader("Date");
+        if (!dateHeader.isPresent()) {
+            return false;
         }
 
-        return CLIENT_TIME_OFFSET;
+        final long serverTime;
+        try {
+            // The Date header only has a resolution of one second
+            serverTime = DateTimeFormatter.RFC_1123_DATE_TIME.parse(dateHeader.get(), Instant::from).toEpochMilli() + 500L;
+        } catch (Throwable e) {
+            return false;
+        }
+        addSample(serverTime - clientTime);
+        return true;
+    }
+
+    private static void addSample(final long offsetMs) {
+        synchronized (SAMPLE_LOCK) {
+            if (HAS_SAMPLE) {
+                CLIENT_TIME_OFFSET_MS += Math.round((offsetMs - CLIENT_TIME_OFFSET_MS) * SMOOTHING_FACTOR);
+            } else {
+                CLIENT_TIME_OFFSET_MS = offsetMs;
+                HAS_SAMPLE = true;
+                SEED_FUTURE.complete(null);
+            }
+
+            final boolean clockOff = Math.abs(CLIENT_TIME_OFFSET_MS) > WARN_THRESHOLD_MS;
+            if (clockOff && !CLOCK_WARNING_LOGGED) {
+                MinecraftAuth.LOGGER.warn("Local clock is off by " + TimeUnit.MILLISECONDS.toMinutes(-CLIENT_TIME_OFFSET_MS) + " minutes");
+            }
+            CLOCK_WARNING_LOGGED = clockOff;
+        }
     }
 
 }
@@ -0,0 +1,158 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util;
+
+import net.lenni0451.commons.httpclient.content.HttpContent;
+import net.lenni0451.commons.httpclient.model.HttpHeader;
+import net.lenni0451.commons.httpclient.requests.HttpContentRequest;
+import net.lenni0451.commons.httpclient.requests.HttpRequest;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Creates the signature header of Xbox Live requests.<br>
+ * The signed data is fed directly into a per-thread {@link Signature} instance instead of being buffered first.
+ */
+public class XblRequestSigner {
+
+    private static final int POLICY_VERSION = 1;
+    private static final int SIGNATURE_PART_LENGTH = 32; // P-256
+    private static final ThreadLocal<XblRequestSigner> SIGNER = ThreadLocal.withInitial(XblRequestSigner::new);
+
+    private final Signature signature;
+    private final byte[] buffer = new byte[8];
+    private final byte[] header = new byte[4 + 8 + SIGNATURE_PART_LENGTH * 2];
+
+    private XblRequestSigner() {
+        try {
+            this.signature = Signature.getInstance("SHA256withECDSA");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not create SHA256withECDSA Signature", e);
+        }
+    }
+
+    public static HttpHeader getSignatureHeader(final HttpRequest httpRequest, final ECPrivateKey privateKey) throws IOException {
+        final long windowsTimestamp = (Math.floorDiv(System.currentTimeMillis() + TimeUtil.getClientTimeOffsetMs(), 1000L) + 11644473600L) * 10000000L;
+        try {
+            return SIGNER.get().sign(httpRequest, privateKey, windowsTimestamp);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Could not sign request", e);
+        }
+    }
+
+    private HttpHeader sign(final HttpRequest httpRequest, final ECPrivateKey privateKey, final long windowsTimestamp) throws IOException, GeneralSecurityException {
+        this.signature.initSign(privateKey);
+        this.updateInt(POLICY_VERSION); // Policy Version
+        this.signature.update((byte) 0); // 0 byte
+        this.updateLong(windowsTimestamp); // Timestamp
+        this.signature.update((byte) 0); // 0 byte
+        this.updateString(httpRequest.getMethod()); // HTTP Method
+        this.signature.update((byte) 0); // 0 byte
+        final URL url = httpRequest.getURL();
+        this.updateString(url.getPath()); // Path
+        if (url.getQuery() != null) {
+            this.updateString(url.getQuery()); // Query
+        }
+        this.signature.update((byte) 0); // 0 byte
+        final Optional<String> authorizationHeader = httpRequest.getFirstHeader("Authorization");
+        if (authorizationHeader.isPresent()) {
+            this.updateString(authorizationHeader.get()); // Authorization Header
+        }
+        this.signature.update((byte) 0); // 0 byte
+        if (httpRequest instanceof HttpContentRequest) {
+            final HttpContent content = ((HttpContentRequest) httpRequest).getContent();
+            if (content != null) {
+                this.signature.update(content.getAsBytes()); // Body
+            }
+        }
+        this.signature.update((byte) 0); // 0 byte
+
+        writeLong(this.header, 0, POLICY_VERSION, 4); // Policy Version
+        writeLong(this.header, 4, windowsTimestamp, 8); // Timestamp
+        derToConcat(this.signature.sign(), this.header, 12); // Signature
+        return new HttpHeader("Signature", Base64.getEncoder().encodeToString(this.header));
+    }
+
+    private void updateInt(final int value) throws GeneralSecurityException {
+        writeLong(this.buffer, 0, value, 4);
+        this.signature.update(this.buffer, 0, 4);
+    }
+
+    private void updateLong(final long value) throws GeneralSecurityException {
+        writeLong(this.buffer, 0, value, 8);
+        this.signature.update(this.buffer, 0, 8);
+    }
+
+    private void updateString(final String value) throws GeneralSecurityException {
+        this.signature.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeLong(final byte[] target, final int offset, final long value, final int length) {
+        for (int i = 0; i < length; i++) {
+            target[offset + i] = (byte) (value >>> (8 * (length - 1 - i)));
+        }
+    }
+
+    /**
+     * Converts a DER encoded ECDSA signature (SEQUENCE of the two INTEGERs r and s) to the fixed length concatenation of r and s used by JWS
+     */
+    static void derToConcat(final byte[] der, final byte[] target, final int offset) throws GeneralSecurityException {
+        if (der.length < 8 || der[0] != 0x30) {
+            throw new GeneralSecurityException("Invalid DER encoded ECDSA signature");
+        }
+
+        int index = 2;
+        if ((der[1] & 0x80) != 0) { // Long form length
+            index += der[1] & 0x7F;
+        }
+        for (int i = 0; i < 2; i++) {
+            if (index + 2 > der.length || der[index] != 0x02) {
+                throw new GeneralSecurityException("Invalid DER encoded ECDSA signature");
+            }
+            int length = der[index + 1] & 0xFF;
+            index += 2;
+            if (index + length > der.length) {
+                throw new GeneralSecurityException("Invalid DER encoded ECDSA signature");
+            }
+            while (length > SIGNATURE_PART_LENGTH && der[index] == 0) { // Strip the sign padding
+                index++;
+                length--;
+            }
+            if (length > SIGNATURE_PART_LENGTH) {
+                throw new GeneralSecurityException("Invalid DER encoded ECDSA signature");
+            }
+
+            final int partOffset = offset + i * SIGNATURE_PART_LENGTH;
+            final int padding = SIGNATURE_PART_LENGTH - length;
+            for (int j = 0; j < padding; j++) {
+                target[partOffset + j] = 0;
+            }
+            System.arraycopy(der, index, target, partOffset + padding, length);
+            index += length;
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.HttpResponse;
+import net.lenni0451.commons.httpclient.executor.RequestExecutor;
+import net.lenni0451.commons.httpclient.requests.HttpRequest;
+import net.lenni0451.commons.httpclient.requests.impl.HeadRequest;
+import net.raphimc.minecraftauth.MinecraftAuth;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a circuit breaker for each host which all http clients using this transport share.<br>
+ * A circuit breaker opens when too many of the recent requests to its host failed (connection errors and 5xx responses) or were too slow.
+ * While it is open, requests to the host fail immediately with a {@link CircuitBreakerOpenException}.
+ * After the open duration a probe request is sent to the host in the background and the circuit breaker closes again once the host responds.<br>
+ * Cancelled requests (See {@link RequestDeadline}) are not counted as failures of the host.
+ */
+public class CircuitBreakerHttpTransport implements IHttpTransport {
+
+    private static ScheduledExecutorService PROBE_SCHEDULER;
+    private static ExecutorService PROBE_EXECUTOR;
+
+    private final IHttpTransport delegate;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private RequestExecutor probeExecutor;
+
+    private int windowSize = 20;
+    private int minimumRequests = 10;
+    private float failureRateThreshold = 0.5F;
+    private float slowRateThreshold = 0.8F;
+    private long slowRequestThresholdMs = TimeUnit.SECONDS.toMillis(5);
+    private long openDurationMs = TimeUnit.SECONDS.toMillis(30);
+
+    public CircuitBreakerHttpTransport(final IHttpTransport delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public RequestExecutor createExecutor(final HttpClient httpClient) {
+        final RequestExecutor delegateExecutor = this.delegate.createExecutor(httpClient);
+        return new RequestExecutor(httpClient) {
+            @Override
+            public HttpResponse execute(final HttpRequest httpRequest) throws IOException, InterruptedException {
+                final URL url = httpRequest.getURL();
+                final CircuitBreaker circuitBreaker = CircuitBreakerHttpTransport.this.circuitBreakers.computeIfAbsent(url.getHost(), CircuitBreaker::new);
+                circuitBreaker.beforeRequest(url);
+
+                final long start = System.currentTimeMillis();
+                final HttpResponse response;
+                try {
+                    response = delegateExecutor.execute(httpRequest);
+                } catch (IOException e) {
+                    if (!RequestDeadline.isCancellation(httpClient, e)) {
+                        circuitBreaker.record(true, System.currentTimeMillis() - start);
+                    }
+                    throw e;
+                }
+                circuitBreaker.record(response.getStatusCode() >= 500, System.currentTimeMillis() - start);
+                return response;
+            }
+        };
+    }
+
+    /**
+     * @param windowSize      The amount of recent requests per host which are considered
+     * @param minimumRequests The minimum amount of recorded requests before the circuit breaker can open
+     * @return This transport
+     */
+    public CircuitBreakerHttpTransport setWindow(final int windowSize, final int minimumRequests) {
+        if (minimumRequests < 1 || windowSize < minimumRequests) {
+            throw new IllegalArgumentException("Invalid window size");
+        }
+
+        this.windowSize = windowSize;
+        this.minimumRequests = minimumRequests;
+        return this;
+    }
+
+    /**
+     * @param failureRateThreshold   The rate of failed requests (0-1) at which the circuit breaker opens
+     * @param slowRateThreshold      The rate of slow requests (0-1) at which the circuit breaker opens
+     * @param slowRequestThresholdMs The duration after which a request is considered slow
+     * @return This transport
+     */
+    public CircuitBreakerHttpTransport setThresholds(final float failureRateThreshold, final float slowRateThreshold, final long slowRequestThresholdMs) {
+        if (!(failureRateThreshold > 0 && failureRateThreshold <= 1) || !(slowRateThreshold > 0 && slowRateThreshold <= 1)) {
+            throw new IllegalArgumentException("Rate thresholds must be greater than 0 and at most 1");
+        }
+        if (slowRequestThresholdMs < 0) {
+            throw new IllegalArgumentException("Invalid slow request threshold");
+        }
+
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowRateThreshold = slowRateThreshold;
+        this.slowRequestThresholdMs = slowRequestThresholdMs;
+        return this;
+    }
+
+    /**
+     * @param openDurationMs The time between opening the circuit breaker (or a failed probe) and the next probe request
+     * @return This transport
+     */
+    public CircuitBreakerHttpTransport setOpenDuration(final long openDurationMs) {
+        if (openDurationMs < 0) {
+            throw new IllegalArgumentException("Invalid open duration");
+        }
+
+        this.openDurationMs = openDurationMs;
+        return this;
+    }
+
+    /**
+     * @param host The host
+     * @return If requests to the given host currently fail immediately
+     */
+    public boolean isOpen(final String host) {
+        final CircuitBreaker circuitBreaker = this.circuitBreakers.get(host);
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
+    private synchronized RequestExecutor getProbeExecutor() {
+        if (this.probeExecutor == null) { // Probes don't use the executor of any user client, because its settings (proxy, deadline, ...) might make the probe fail
+            this.probeExecutor = this.delegate.createExecutor(new HttpClient().setConnectTimeout(5000).setReadTimeout(10000).setFollowRedirects(false));
+        }
+        return this.probeExecutor;
+    }
+
+    private static synchronized ScheduledExecutorService getProbeScheduler() {
+        if (PROBE_SCHEDULER == null) {
+            PROBE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "MinecraftAuth Circuit Breaker Probe Scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return PROBE_SCHEDULER;
+    }
+
+    private static synchronized ExecutorService getProbeExecutorService() {
+        if (PROBE_EXECUTOR == null) { // Probes block for up to the read timeout, so they don't run on the scheduler thread, where an unresponsive host would delay the probes of all other hosts
+            PROBE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "MinecraftAuth Circuit Breaker Probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return PROBE_EXECUTOR;
+    }
+
+    private class CircuitBreaker {
+
+        private final String host;
+        private final boolean[] failed = new boolean[CircuitBreakerHttpTransport.this.windowSize];
+        private final boolean[] slow = new boolean[CircuitBreakerHttpTransport.this.windowSize];
+        private int index;
+        private int count;
+        private long openUntilMs;
+        private boolean open;
+        private URL probeUrl;
+
+        private CircuitBreaker(final String host) {
+            this.host = host;
+        }
+
+        private synchronized void beforeRequest(final URL url) throws IOException {
+            if (this.open) {
+                throw new CircuitBreakerOpenException(this.host, this.openUntilMs);
+            }
+
+            if (this.probeUrl == null) {
+                this.probeUrl = new URL(url.getProtocol(), url.getHost(), url.getPort(), "/");
+            }
+        }
+
+        private synchronized void record(final boolean failed, final long durationMs) {
+            if (this.open) return;
+
+            this.failed[this.index] = failed;
+            this.slow[this.index] = durationMs >= CircuitBreakerHttpTransport.this.slowRequestThresholdMs;
+            this.index = (this.index + 1) % this.failed.length;
+            this.count = Math.min(this.count + 1, this.failed.length);
+            if (this.count < CircuitBreakerHttpTransport.this.minimumRequests) return;
+
+            int failedCount = 0;
+            int slowCount = 0;
+            for (int i = 0; i < this.count; i++) {
+                if (this.failed[i]) failedCount++;
+                if (this.slow[i]) slowCount++;
+            }
+            if (failedCount >= this.count * CircuitBreakerHttpTransport.this.failureRateThreshold || slowCount >= this.count * CircuitBreakerHttpTransport.this.slowRateThreshold) {
+                MinecraftAuth.LOGGER.warn("Too many requests to " + this.host + " failed or were slow (" + failedCount + " failed, " + slowCount + " slow out of " + this.count + "). Failing requests to it for " + CircuitBreakerHttpTransport.this.openDurationMs + "ms");
+                this.open = true;
+                this.scheduleProbe();
+            }
+        }
+
+        private void scheduleProbe() {
+            this.openUntilMs = System.currentTimeMillis() + CircuitBreakerHttpTransport.this.openDurationMs;
+            getProbeScheduler().schedule(() -> getProbeExecutorService().execute(this::probe), CircuitBreakerHttpTransport.this.openDurationMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void probe() {
+            boolean success;
+            try {
+                success = CircuitBreakerHttpTransport.this.getProbeExecutor().execute(new HeadRequest(this.probeUrl)).getStatusCode() < 500;
+            } catch (Throwable e) {
+                success = false;
+            }
+
+            synchronized (this) {
+                if (success) {
+                    MinecraftAuth.LOGGER.info(this.host + " is responding again. Resuming requests to it");
+                    this.open = false;
+                    this.index = 0;
+                    this.count = 0;
+                } else {
+                    this.scheduleProbe();
+                }
+            }
+        }
+
+        private synchronized boolean isOpen() {
+            return this.open;
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.requests.impl.HeadRequest;
+import net.raphimc.minecraftauth.MinecraftAuth;
+import net.raphimc.minecraftauth.step.AbstractStep;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves and connects to all hosts of a step chain ahead of time, so that the first login doesn't have to wait for DNS lookups and TLS handshakes.<br>
+ * The connections are only kept open if the {@link IHttpTransport} of the http client reuses connections (See {@link PooledHttpTransport}).
+ */
+public class ConnectionWarmUp {
+
+    /**
+     * Warms up the connections to all hosts of the given step chain one after the other
+     *
+     * @param httpClient The http client which will be used for the login
+     * @param step       The step chain
+     * @return The hosts which have been warmed up successfully
+     */
+    public static Set<String> warmUp(final HttpClient httpClient, final AbstractStep<?, ?> step) {
+        final Set<String> warmedUpHosts = new LinkedHashSet<>();
+        for (URI origin : getOrigins(step)) {
+            if (warmUp(httpClient, origin)) {
+                warmedUpHosts.add(origin.getHost());
+            }
+        }
+        return warmedUpHosts;
+    }
+
+    /**
+     * Warms up the connections to all hosts of the given step chain concurrently
+     *
+     * @param httpClient The http client which will be used for the login
+     * @param step       The step chain
+     * @param executor   The executor used for the connections
+     * @return A future which completes with the hosts which have been warmed up successfully
+     */
+    public static CompletableFuture<Set<String>> warmUpAsync(final HttpClient httpClient, final AbstractStep<?, ?> step, final Executor executor) {
+        final Map<URI, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+        for (URI origin : getOrigins(step)) {
+            futures.put(origin, CompletableFuture.supplyAsync(() -> warmUp(httpClient, origin), executor));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(v -> {
+            final Set<String> warmedUpHosts = new LinkedHashSet<>();
+            for (Map.Entry<URI, CompletableFuture<Boolean>> entry : futures.entrySet()) {
+                if (entry.getValue().join()) {
+                    warmedUpHosts.add(entry.getKey().getHost());
+                }
+            }
+            return warmedUpHosts;
+        });
+    }
+
+    private static Set<URI> getOrigins(final AbstractStep<?, ?> step) {
+        final Set<URI> origins = new LinkedHashSet<>();
+        for (String requestUrl : step.getChainRequestUrls()) {
+            final URI uri = URI.create(requestUrl);
+            origins.add(URI.create(uri.getScheme() + "://" + uri.getAuthority() + "/"));
+        }
+        return origins;
+    }
+
+    private static boolean warmUp(final HttpClient httpClient, final URI origin) {
+        try {
+            InetAddress.getAllByName(origin.getHost());
+            httpClient.execute(new HeadRequest(origin.toURL())); // Any response means that the connection has been established
+            return true;
+        } catch (Throwable e) {
+            MinecraftAuth.LOGGER.warn("Failed to warm up connection to " + origin.getHost() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+}
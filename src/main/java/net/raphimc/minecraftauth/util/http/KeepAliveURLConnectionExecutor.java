@@ -0,0 +1,102 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.HttpResponse;
+import net.lenni0451.commons.httpclient.executor.RequestExecutor;
+import net.lenni0451.commons.httpclient.executor.URLConnectionExecutor;
+import net.lenni0451.commons.httpclient.requests.HttpContentRequest;
+import net.lenni0451.commons.httpclient.requests.HttpRequest;
+import net.lenni0451.commons.httpclient.utils.HttpRequestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as {@link URLConnectionExecutor}, but the connection is not disconnected after the response has been read, so that the JVM can reuse it for the next request to the same host.
+ */
+public class KeepAliveURLConnectionExecutor extends RequestExecutor {
+
+    private final URLConnectionExecutor fallbackExecutor;
+
+    public KeepAliveURLConnectionExecutor(final HttpClient client) {
+        super(client);
+
+        this.fallbackExecutor = new URLConnectionExecutor(client);
+    }
+
+    @Override
+    public HttpResponse execute(final HttpRequest httpRequest) throws IOException {
+        if (this.client.getProxyHandler().isProxySet() || this.isIgnoreInvalidSSL(httpRequest)) {
+            return this.fallbackExecutor.execute(httpRequest);
+        }
+
+        final CookieManager cookieManager = this.getCookieManager(httpRequest);
+        final HttpURLConnection connection = (HttpURLConnection) httpRequest.getURL().openConnection();
+        HttpRequestUtils.setHeaders(connection, this.getHeaders(httpRequest, cookieManager));
+        connection.setConnectTimeout(this.client.getConnectTimeout());
+        connection.setReadTimeout(RequestDeadline.limitTimeout(this.client.getReadTimeout()));
+        connection.setRequestMethod(httpRequest.getMethod());
+        connection.setDoInput(true);
+        switch (httpRequest.getFollowRedirects()) {
+            case NOT_SET:
+                connection.setInstanceFollowRedirects(this.client.isFollowRedirects());
+                break;
+            case FOLLOW:
+                connection.setInstanceFollowRedirects(true);
+                break;
+            case IGNORE:
+                connection.setInstanceFollowRedirects(false);
+                break;
+        }
+
+        RequestDeadline.setAbortAction(connection::disconnect);
+        try {
+            if (httpRequest instanceof HttpContentRequest && ((HttpContentRequest) httpRequest).hasContent()) {
+                connection.setDoOutput(true);
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    outputStream.write(((HttpContentRequest) httpRequest).getContent().getAsBytes());
+                    outputStream.flush();
+                }
+            }
+
+            final byte[] body = HttpRequestUtils.readBody(connection); // Reading the whole body releases the connection back to the keep-alive cache
+            final Map<String, List<String>> headers = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : connection.getHeaderFields().entrySet()) {
+                if (entry.getKey() != null) { // Status line
+                    headers.put(entry.getKey(), entry.getValue());
+                }
+            }
+            final HttpResponse response = new HttpResponse(httpRequest.getURL(), connection.getResponseCode(), body, headers);
+            HttpRequestUtils.updateCookies(cookieManager, httpRequest.getURL(), connection.getHeaderFields());
+            return response;
+        } catch (IOException e) {
+            connection.disconnect(); // The connection is in an unknown state and can't be reused
+            throw e;
+        } finally {
+            RequestDeadline.clearAbortAction();
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.executor.RequestExecutor;
+
+/**
+ * Sends the requests over reused keep-alive connections.<br>
+ * On Java 11+ the requests are sent using shared java.net.http clients, which additionally multiplex requests to the same host over HTTP/2 connections (See src/java11).
+ */
+public class PooledHttpTransport implements IHttpTransport {
+
+    @Override
+    public RequestExecutor createExecutor(final HttpClient httpClient) {
+        return new KeepAliveURLConnectionExecutor(httpClient);
+    }
+
+    /**
+     * @return True if requests are multiplexed over HTTP/2 connections
+     */
+    public boolean isHttp2() {
+        return false;
+    }
+
+}
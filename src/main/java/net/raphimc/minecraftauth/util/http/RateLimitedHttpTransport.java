@@ -0,0 +1,213 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.HttpResponse;
+import net.lenni0451.commons.httpclient.constants.StatusCodes;
+import net.lenni0451.commons.httpclient.executor.RequestExecutor;
+import net.lenni0451.commons.httpclient.requests.HttpRequest;
+import net.lenni0451.commons.httpclient.utils.HttpRequestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests sent to each host by all http clients using this transport.<br>
+ * The amount of concurrent requests per host is adjusted using AIMD (additive increase on success, multiplicative decrease when the host is overloaded).
+ * Additionally a token bucket limits the request rate per host. When a host responds with a Retry-After header, no requests are sent to it until the given time has passed.
+ */
+public class RateLimitedHttpTransport implements IHttpTransport {
+
+    private final IHttpTransport delegate;
+    private final Map<String, HostLimiter> hostLimiters = new ConcurrentHashMap<>();
+
+    private int initialConcurrencyLimit = 8;
+    private int maxConcurrencyLimit = 64;
+    private double requestsPerSecond = Double.POSITIVE_INFINITY;
+    private int burstSize = 20;
+    private long maxWaitTimeMs = TimeUnit.SECONDS.toMillis(60);
+
+    public RateLimitedHttpTransport(final IHttpTransport delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public RequestExecutor createExecutor(final HttpClient httpClient) {
+        final RequestExecutor delegateExecutor = this.delegate.createExecutor(httpClient);
+        return new RequestExecutor(httpClient) {
+            @Override
+            public HttpResponse execute(final HttpRequest httpRequest) throws IOException, InterruptedException {
+                final HostLimiter hostLimiter = RateLimitedHttpTransport.this.getHostLimiter(httpRequest.getURL().getHost());
+                hostLimiter.acquire();
+                HttpResponse response = null;
+                boolean failed = false;
+                try {
+                    response = delegateExecutor.execute(httpRequest);
+                    return response;
+                } catch (IOException e) {
+                    // Cancelled requests and requests which were never sent don't say anything about the load of the host
+                    failed = !(e instanceof CircuitBreakerOpenException) && !RequestDeadline.isCancellation(httpClient, e);
+                    throw e;
+                } finally {
+                    hostLimiter.release(response, failed);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param initialConcurrencyLimit The amount of concurrent requests per host before the limit has been adjusted
+     * @param maxConcurrencyLimit     The maximum amount of concurrent requests per host
+     * @return This transport
+     */
+    public RateLimitedHttpTransport setConcurrencyLimits(final int initialConcurrencyLimit, final int maxConcurrencyLimit) {
+        if (initialConcurrencyLimit < 1 || maxConcurrencyLimit < initialConcurrencyLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits");
+        }
+
+        this.initialConcurrencyLimit = initialConcurrencyLimit;
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
+        return this;
+    }
+
+    /**
+     * @param requestsPerSecond The maximum sustained request rate per host
+     * @param burstSize         The maximum amount of requests per host which can be sent at once after the host has been idle
+     * @return This transport
+     */
+    public RateLimitedHttpTransport setRateLimit(final double requestsPerSecond, final int burstSize) {
+        if (requestsPerSecond <= 0 || burstSize < 1) {
+            throw new IllegalArgumentException("Invalid rate limit");
+        }
+
+        this.requestsPerSecond = requestsPerSecond;
+        this.burstSize = burstSize;
+        return this;
+    }
+
+    /**
+     * @param maxWaitTimeMs The maximum time a request waits for its host before it fails
+     * @return This transport
+     */
+    public RateLimitedHttpTransport setMaxWaitTime(final long maxWaitTimeMs) {
+        this.maxWaitTimeMs = maxWaitTimeMs;
+        return this;
+    }
+
+    /**
+     * @param host The host
+     * @return The current concurrency limit of the given host
+     */
+    public int getConcurrencyLimit(final String host) {
+        final HostLimiter hostLimiter = this.hostLimiters.get(host);
+        return hostLimiter != null ? hostLimiter.getLimit() : this.initialConcurrencyLimit;
+    }
+
+    /**
+     * @param host The host
+     * @return The amount of requests which are currently sent to the given host
+     */
+    public int getInFlightCount(final String host) {
+        final HostLimiter hostLimiter = this.hostLimiters.get(host);
+        return hostLimiter != null ? hostLimiter.getInFlight() : 0;
+    }
+
+    private HostLimiter getHostLimiter(final String host) {
+        return this.hostLimiters.computeIfAbsent(host, h -> new HostLimiter());
+    }
+
+    private class HostLimiter {
+
+        private double limit = RateLimitedHttpTransport.this.initialConcurrencyLimit;
+        private int inFlight;
+        private double tokens = RateLimitedHttpTransport.this.burstSize;
+        private long lastRefillTimeMs = System.currentTimeMillis();
+        private long blockedUntilMs;
+
+        private synchronized void acquire() throws IOException, InterruptedException {
+            final long deadline = System.currentTimeMillis() + RateLimitedHttpTransport.this.maxWaitTimeMs;
+            while (true) {
+                final long now = System.currentTimeMillis();
+                this.refill(now);
+
+                long waitTimeMs;
+                if (now < this.blockedUntilMs) {
+                    waitTimeMs = this.blockedUntilMs - now;
+                } else if (this.inFlight >= (int) this.limit) {
+                    waitTimeMs = deadline - now; // Woken up by release
+                } else if (this.tokens < 1) {
+                    waitTimeMs = Math.max(1, (long) Math.ceil((1 - this.tokens) * 1000 / RateLimitedHttpTransport.this.requestsPerSecond));
+                } else {
+                    this.tokens--;
+                    this.inFlight++;
+                    return;
+                }
+
+                if (now + waitTimeMs > deadline) {
+                    if (now >= deadline) {
+                        throw new IOException("Timed out waiting for the rate limit of the host");
+                    }
+                    waitTimeMs = deadline - now;
+                }
+                this.wait(waitTimeMs);
+            }
+        }
+
+        private synchronized void release(final HttpResponse response, final boolean failed) {
+            this.inFlight--;
+            if (failed || response != null && (response.getStatusCode() == StatusCodes.TOO_MANY_REQUESTS || response.getStatusCode() == StatusCodes.SERVICE_UNAVAILABLE)) {
+                this.limit = Math.max(1, this.limit / 2);
+            } else if (response != null && response.getStatusCode() < 500) {
+                this.limit = Math.min(RateLimitedHttpTransport.this.maxConcurrencyLimit, this.limit + 1 / this.limit);
+            }
+
+            if (response != null) {
+                final Optional<String> retryAfter = response.getFirstHeader("Retry-After");
+                if (retryAfter.isPresent()) {
+                    final Long retryAfterMs = HttpRequestUtils.parseSecondsOrHttpDate(retryAfter.get());
+                    if (retryAfterMs != null && retryAfterMs > 0) {
+                        this.blockedUntilMs = Math.max(this.blockedUntilMs, System.currentTimeMillis() + retryAfterMs);
+                        this.tokens = 0;
+                    }
+                }
+            }
+            this.notifyAll();
+        }
+
+        private void refill(final long now) {
+            if (now > this.lastRefillTimeMs) {
+                this.tokens = Math.min(RateLimitedHttpTransport.this.burstSize, this.tokens + (now - this.lastRefillTimeMs) * RateLimitedHttpTransport.this.requestsPerSecond / 1000);
+                this.lastRefillTimeMs = now;
+            }
+        }
+
+        private synchronized int getLimit() {
+            return (int) this.limit;
+        }
+
+        private synchronized int getInFlight() {
+            return this.inFlight;
+        }
+
+    }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.HttpResponse;
+import net.lenni0451.commons.httpclient.RetryHandler;
+import net.lenni0451.commons.httpclient.executor.RequestExecutor;
+import net.lenni0451.commons.httpclient.requests.HttpRequest;
+import net.raphimc.minecraftauth.MinecraftAuth;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An end-to-end deadline for all requests of a login or refresh, which can also be cancelled.<br>
+ * The deadline is passed through the step chain using the http client returned by {@link #bind(HttpClient)}:
+ * <pre>
+ * RequestDeadline deadline = RequestDeadline.after(30_000);
+ * MinecraftAuth.JAVA_DEVICE_CODE_LOGIN.refresh(deadline.bind(httpClient), javaSession);
+ * </pre>
+ * Every request gets the remaining time as read timeout and requests which are still running when the deadline expires or is cancelled are aborted.
+ * Requests sent using a {@link PooledHttpTransport} are aborted immediately by closing their connection, other requests are interrupted.
+ */
+public class RequestDeadline {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+    private static ScheduledExecutorService EXPIRY_SCHEDULER;
+
+    private final long deadlineMs;
+    private final Map<Thread, Runnable> abortActions = new ConcurrentHashMap<>();
+    private boolean cancelled;
+    private boolean expired;
+
+    private RequestDeadline(final long deadlineMs) {
+        this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * @param timeoutMs The time in milliseconds after which the deadline expires
+     * @return A new deadline
+     */
+    public static RequestDeadline after(final long timeoutMs) {
+        final RequestDeadline deadline = new RequestDeadline(System.currentTimeMillis() + timeoutMs);
+        getExpiryScheduler().schedule(deadline::expire, timeoutMs, TimeUnit.MILLISECONDS);
+        return deadline;
+    }
+
+    /**
+     * @param httpClient The http client
+     * @return The deadline bound to the http client or null if there is none
+     */
+    public static RequestDeadline of(final HttpClient httpClient) {
+        return httpClient instanceof DeadlineHttpClient ? ((DeadlineHttpClient) httpClient).deadline : null;
+    }
+
+    /**
+     * @param httpClient The http client
+     * @param timeoutMs  The timeout of an operation in milliseconds
+     * @return The given timeout limited to the remaining time of the deadline bound to the http client
+     */
+    public static long getRemainingTime(final HttpClient httpClient, final long timeoutMs) {
+        final RequestDeadline deadline = of(httpClient);
+        return deadline != null ? Math.min(timeoutMs, deadline.getRemainingMs()) : timeoutMs;
+    }
+
+    /**
+     * Limits a timeout of the request which is currently sent by this thread to the remaining time of its deadline
+     *
+     * @param timeoutMs The timeout in milliseconds (0 for infinite)
+     * @return The limited timeout
+     */
+    public static int limitTimeout(final int timeoutMs) {
+        final RequestDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return timeoutMs;
+        }
+
+        final long remainingMs = deadline.getRemainingMs();
+        return (int) Math.max(1, timeoutMs > 0 ? Math.min(timeoutMs, remainingMs) : remainingMs);
+    }
+
+    /**
+     * Sets the action which aborts the request currently sent by this thread, if it is bound to a deadline.<br>
+     * Request executors should call this once they have a connection and {@link #clearAbortAction()} once the request has finished.
+     *
+     * @param abortAction The action which aborts the request (For example by closing its connection)
+     * @throws DeadlineExceededException If the deadline has already expired or has been cancelled
+     */
+    public static void setAbortAction(final Runnable abortAction) throws DeadlineExceededException {
+        final RequestDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return;
+        }
+
+        final Thread thread = Thread.currentThread();
+        synchronized (deadline) {
+            deadline.check();
+            if (deadline.abortActions.containsKey(thread)) {
+                deadline.abortActions.put(thread, () -> {
+                    thread.interrupt();
+                    abortAction.run();
+                });
+            }
+        }
+    }
+
+    /**
+     * Removes the action set using {@link #setAbortAction(Runnable)}
+     */
+    public static void clearAbortAction() {
+        final RequestDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return;
+        }
+
+        final Thread thread = Thread.currentThread();
+        synchronized (deadline) {
+            if (deadline.abortActions.containsKey(thread)) {
+                deadline.abortActions.put(thread, thread::interrupt);
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of the http client whose requests are bound to this deadline.<br>
+     * The requests of the copy are sent using the given http client.
+     *
+     * @param httpClient The http client
+     * @return The bound http client
+     */
+    public HttpClient bind(final HttpClient httpClient) {
+        return new DeadlineHttpClient(httpClient, this);
+    }
+
+    /**
+     * Cancels the deadline. Running requests are interrupted and no further requests are sent.
+     */
+    public void cancel() {
+        synchronized (this) {
+            this.cancelled = true;
+        }
+        this.abortActiveRequests();
+    }
+
+    /**
+     * @return The remaining time in milliseconds
+     */
+    public long getRemainingMs() {
+        return Math.max(0, this.deadlineMs - System.currentTimeMillis());
+    }
+
+    public synchronized boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    public synchronized boolean isExpired() {
+        return this.expired || this.deadlineMs <= System.currentTimeMillis();
+    }
+
+    /**
+     * @throws DeadlineExceededException If the deadline has expired or has been cancelled
+     */
+    public void check() throws DeadlineExceededException {
+        if (this.isCancelled()) {
+            throw new DeadlineExceededException("Request has been cancelled");
+        } else if (this.isExpired()) {
+            throw new DeadlineExceededException("Request deadline has expired");
+        }
+    }
+
+    /**
+     * @param httpClient The http client which sent the request
+     * @param e          The exception thrown by the request
+     * @return If the request has been interrupted or cancelled instead of failing because of its host
+     */
+    static boolean isCancellation(final HttpClient httpClient, final IOException e) {
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return true;
+        }
+
+        final RequestDeadline deadline = CURRENT.get() != null ? CURRENT.get() : of(httpClient);
+        return deadline != null && (deadline.isCancelled() || deadline.isExpired()); // The read timeout is limited to the remaining time of the deadline
+    }
+
+    private void expire() {
+        synchronized (this) {
+            this.expired = true;
+        }
+        this.abortActiveRequests();
+    }
+
+    private synchronized void abortActiveRequests() {
+        for (Runnable abortAction : this.abortActions.values()) {
+            try {
+                abortAction.run();
+            } catch (Throwable e) {
+                MinecraftAuth.LOGGER.warn("Failed to abort request: " + e.getMessage());
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getExpiryScheduler() {
+        if (EXPIRY_SCHEDULER == null) {
+            EXPIRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "MinecraftAuth Request Deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return EXPIRY_SCHEDULER;
+    }
+
+    private static class DeadlineHttpClient extends HttpClient {
+
+        private final RequestDeadline deadline;
+
+        private DeadlineHttpClient(final HttpClient httpClient, final RequestDeadline deadline) {
+            super(client -> new DeadlineExecutor(client, deadline, httpClient));
+
+            this.deadline = deadline;
+            this.setConnectTimeout(httpClient.getConnectTimeout());
+            this.setReadTimeout(httpClient.getReadTimeout());
+            this.setFollowRedirects(httpClient.isFollowRedirects());
+            this.setRetryHandler(new RetryHandler(0, 0)); // The requests are retried by the given http client
+            this.setProxyHandler(httpClient.getProxyHandler());
+            this.setIgnoreInvalidSSL(httpClient.isIgnoreInvalidSSL());
+            this.setCookieManager(httpClient.getCookieManager());
+            this.clearHeaders();
+            for (Map.Entry<String, List<String>> entry : httpClient.getHeaders().entrySet()) {
+                for (String value : entry.getValue()) {
+                    this.appendHeader(entry.getKey(), value);
+                }
+            }
+        }
+
+        @Override
+        public int getReadTimeout() {
+            final int readTimeout = super.getReadTimeout();
+            final long remainingMs = this.deadline.getRemainingMs();
+            return (int) Math.max(1, readTimeout > 0 ? Math.min(readTimeout, remainingMs) : remainingMs);
+        }
+
+    }
+
+    private static class DeadlineExecutor extends RequestExecutor {
+
+        private final RequestDeadline deadline;
+        private final HttpClient httpClient;
+
+        private DeadlineExecutor(final HttpClient client, final RequestDeadline deadline, final HttpClient httpClient) {
+            super(client);
+
+            this.deadline = deadline;
+            this.httpClient = httpClient;
+        }
+
+        @Override
+        public HttpResponse execute(final HttpRequest httpRequest) throws IOException, InterruptedException {
+            this.deadline.check();
+            final Thread thread = Thread.currentThread();
+            final RequestDeadline previousDeadline = CURRENT.get();
+            CURRENT.set(this.deadline);
+            this.deadline.abortActions.put(thread, thread::interrupt);
+            try {
+                return this.httpClient.execute(httpRequest);
+            } catch (Throwable e) {
+                if (e instanceof IOException || e instanceof InterruptedException) { // Aborted requests fail with any kind of exception (For example a closed socket)
+                    this.deadline.check();
+                }
+                throw e;
+            } finally {
+                synchronized (this.deadline) {
+                    this.deadline.abortActions.remove(thread);
+                }
+                if (previousDeadline != null) {
+                    CURRENT.set(previousDeadline);
+                } else {
+                    CURRENT.remove();
+                }
+                if (this.deadline.isCancelled() || this.deadline.isExpired()) {
+                    Thread.interrupted(); // Clear the interrupt which might have been set after the request has finished
+                }
+            }
+        }
+
+    }
+
+}
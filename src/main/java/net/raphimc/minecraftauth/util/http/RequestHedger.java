@@ -0,0 +1,203 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.http;
+
+import net.lenni0451.commons.httpclient.HttpClient;
+import net.lenni0451.commons.httpclient.handler.HttpResponseHandler;
+import net.lenni0451.commons.httpclient.requests.impl.GetRequest;
+import net.raphimc.minecraftauth.MinecraftAuth;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a second attempt of a slow idempotent GET request and uses whichever response arrives first.<br>
+ * The second attempt is sent once the first one takes longer than the configured percentile of the recent latencies of the same URL.
+ * The latency of a request is measured from sending the first attempt, so slow first attempts which lost against the second one are still included.
+ * Only {@link GetRequest}s are accepted, requests which mint tokens are never hedged.
+ */
+public class RequestHedger {
+
+    private static final int SAMPLE_COUNT = 64;
+    private static final int MIN_SAMPLE_COUNT = 8;
+
+    private final float percentile;
+    private final long defaultDelayMs;
+    private final ExecutorService executor;
+    private final Map<String, LatencySamples> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong hedgedCount = new AtomicLong();
+
+    /**
+     * @param percentile     The percentile (0-1) of the recent latencies after which the second attempt is sent
+     * @param defaultDelayMs The delay used until enough latencies of the URL have been recorded
+     * @param executor       The executor used to send the attempts. Cancelled attempts are interrupted.
+     */
+    public RequestHedger(final float percentile, final long defaultDelayMs, final ExecutorService executor) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+
+        this.percentile = percentile;
+        this.defaultDelayMs = defaultDelayMs;
+        this.executor = executor;
+    }
+
+    /**
+     * Executes the GET request using {@link MinecraftAuth#REQUEST_HEDGER} if it is set or directly otherwise
+     *
+     * @param httpClient      The http client
+     * @param requestFactory  Creates a new request for every attempt
+     * @param responseHandler The response handler
+     * @param <R>             The response type
+     * @return The handled response of the first successful attempt
+     * @throws IOException If all attempts failed
+     */
+    public static <R> R executeGet(final HttpClient httpClient, final RequestFactory requestFactory, final HttpResponseHandler<R> responseHandler) throws IOException {
+        final RequestHedger requestHedger = MinecraftAuth.REQUEST_HEDGER;
+        if (requestHedger != null) {
+            return requestHedger.execute(httpClient, requestFactory, responseHandler);
+        } else {
+            return httpClient.execute(requestFactory.create(), responseHandler);
+        }
+    }
+
+    /**
+     * @param httpClient      The http client
+     * @param requestFactory  Creates a new request for every attempt
+     * @param responseHandler The response handler
+     * @param <R>             The response type
+     * @return The handled response of the first successful attempt
+     * @throws IOException If all attempts failed
+     */
+    public <R> R execute(final HttpClient httpClient, final RequestFactory requestFactory, final HttpResponseHandler<R> responseHandler) throws IOException {
+        final GetRequest firstRequest = requestFactory.create();
+        final URL url = firstRequest.getURL();
+        final String key = url.getHost() + url.getPath();
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        final AtomicInteger pendingAttempts = new AtomicInteger(1);
+
+        final long start = System.currentTimeMillis();
+        final Future<?> firstAttempt = this.executor.submit(new Attempt<>(httpClient, firstRequest, responseHandler, result, pendingAttempts));
+        Future<?> secondAttempt = null;
+        try {
+            R response;
+            try {
+                response = result.get(this.getDelay(key), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                pendingAttempts.incrementAndGet();
+                this.hedgedCount.incrementAndGet();
+                secondAttempt = this.executor.submit(new Attempt<>(httpClient, requestFactory.create(), responseHandler, result, pendingAttempts));
+                response = result.get();
+            }
+            this.latencies.computeIfAbsent(key, k -> new LatencySamples()).add(System.currentTimeMillis() - start);
+            return response;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            firstAttempt.cancel(true);
+            if (secondAttempt != null) {
+                secondAttempt.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return The amount of requests for which a second attempt has been sent
+     */
+    public long getHedgedCount() {
+        return this.hedgedCount.get();
+    }
+
+    private long getDelay(final String key) {
+        final LatencySamples latencySamples = this.latencies.get(key);
+        return latencySamples != null ? latencySamples.getPercentile(this.percentile, this.defaultDelayMs) : this.defaultDelayMs;
+    }
+
+    private class Attempt<R> implements Runnable {
+
+        private final HttpClient httpClient;
+        private final GetRequest getRequest;
+        private final HttpResponseHandler<R> responseHandler;
+        private final CompletableFuture<R> result;
+        private final AtomicInteger pendingAttempts;
+
+        private Attempt(final HttpClient httpClient, final GetRequest getRequest, final HttpResponseHandler<R> responseHandler, final CompletableFuture<R> result, final AtomicInteger pendingAttempts) {
+            this.httpClient = httpClient;
+            this.getRequest = getRequest;
+            this.responseHandler = responseHandler;
+            this.result = result;
+            this.pendingAttempts = pendingAttempts;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.result.complete(this.httpClient.execute(this.getRequest, this.responseHandler));
+            } catch (Throwable e) {
+                if (this.pendingAttempts.decrementAndGet() == 0) {
+                    this.result.completeExceptionally(e);
+                }
+            }
+        }
+
+    }
+
+    @FunctionalInterface
+    public interface RequestFactory {
+
+        GetRequest create() throws IOException;
+
+    }
+
+    private static class LatencySamples {
+
+        private final long[] samples = new long[SAMPLE_COUNT];
+        private int index;
+        private int count;
+
+        private synchronized void add(final long latencyMs) {
+            this.samples[this.index] = latencyMs;
+            this.index = (this.index + 1) % this.samples.length;
+            this.count = Math.min(this.count + 1, this.samples.length);
+        }
+
+        private synchronized long getPercentile(final float percentile, final long defaultValue) {
+            if (this.count < MIN_SAMPLE_COUNT) {
+                return defaultValue;
+            }
+
+            final long[] sorted = Arrays.copyOf(this.samples, this.count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(this.count - 1, (int) Math.ceil(percentile * this.count) - 1)];
+        }
+
+    }
+
+}
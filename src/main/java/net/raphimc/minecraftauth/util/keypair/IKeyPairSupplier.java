@@ -0,0 +1,33 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.keypair;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+
+public interface IKeyPairSupplier {
+
+    /**
+     * Gets an elliptic curve key pair for the given curve
+     *
+     * @param curve The standard name of the curve (e.g. secp256r1)
+     * @return A key pair which has not been handed out before
+     */
+    KeyPair getEcKeyPair(final String curve) throws GeneralSecurityException;
+
+}
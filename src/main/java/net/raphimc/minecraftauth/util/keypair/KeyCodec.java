@@ -0,0 +1,166 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.keypair;
+
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes X509 public keys and PKCS8 private keys using a separate KeyFactory per thread, because KeyFactory instances are not guaranteed to be thread safe.<br>
+ * Decoded public keys are immutable and the most recently used ones can be cached by their encoded bytes (See {@link #setMaxCacheSize(int)}), so that loading the same key multiple times doesn't decode it again.
+ * The cache is disabled by default, because the keys of sessions are unique and rarely decoded twice.
+ * Private keys are never cached, so that they don't stay in memory after the session using them is gone.
+ */
+public class KeyCodec {
+
+    private static final ThreadLocal<KeyFactory> RSA_KEYFACTORY = ThreadLocal.withInitial(() -> createKeyFactory("RSA"));
+    private static final ThreadLocal<KeyFactory> EC_KEYFACTORY = ThreadLocal.withInitial(() -> createKeyFactory("EC"));
+
+    private static final Map<CacheKey, PublicKey> CACHE = new LinkedHashMap<CacheKey, PublicKey>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<CacheKey, PublicKey> eldest) {
+            return this.size() > maxCacheSize;
+        }
+    };
+    private static volatile int maxCacheSize = 0;
+
+    public static KeyFactory getRsaKeyFactory() {
+        return RSA_KEYFACTORY.get();
+    }
+
+    public static KeyFactory getEcKeyFactory() {
+        return EC_KEYFACTORY.get();
+    }
+
+    public static <T extends PublicKey> T decodeRsaPublicKey(final byte[] encoded) throws InvalidKeySpecException {
+        return decodePublicKey(RSA_KEYFACTORY, encoded);
+    }
+
+    public static <T extends PrivateKey> T decodeRsaPrivateKey(final byte[] encoded) throws InvalidKeySpecException {
+        return decodePrivateKey(RSA_KEYFACTORY, encoded);
+    }
+
+    public static <T extends PublicKey> T decodeEcPublicKey(final byte[] encoded) throws InvalidKeySpecException {
+        return decodePublicKey(EC_KEYFACTORY, encoded);
+    }
+
+    public static <T extends PrivateKey> T decodeEcPrivateKey(final byte[] encoded) throws InvalidKeySpecException {
+        return decodePrivateKey(EC_KEYFACTORY, encoded);
+    }
+
+    /**
+     * Sets the maximum amount of decoded public keys which are cached. Setting it to 0 disables the cache, which is the default.
+     *
+     * @param maxCacheSize The maximum amount of cached keys
+     */
+    public static void setMaxCacheSize(final int maxCacheSize) {
+        KeyCodec.maxCacheSize = maxCacheSize;
+        synchronized (CACHE) {
+            final Iterator<CacheKey> iterator = CACHE.keySet().iterator(); // Least recently used first
+            while (CACHE.size() > Math.max(0, maxCacheSize) && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    public static int getCacheSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static <T extends PublicKey> T decodePublicKey(final ThreadLocal<KeyFactory> keyFactory, final byte[] encoded) throws InvalidKeySpecException {
+        if (maxCacheSize <= 0) {
+            return (T) keyFactory.get().generatePublic(new X509EncodedKeySpec(encoded));
+        }
+
+        final CacheKey cacheKey = new CacheKey(keyFactory, encoded); // The array is only copied when the key is added to the cache
+        PublicKey key;
+        synchronized (CACHE) {
+            key = CACHE.get(cacheKey);
+        }
+        if (key == null) {
+            key = keyFactory.get().generatePublic(new X509EncodedKeySpec(encoded));
+            final CacheKey copy = new CacheKey(keyFactory, encoded.clone(), cacheKey.hashCode);
+            synchronized (CACHE) {
+                CACHE.put(copy, key);
+            }
+        }
+        return (T) key;
+    }
+
+    private static <T extends PrivateKey> T decodePrivateKey(final ThreadLocal<KeyFactory> keyFactory, final byte[] encoded) throws InvalidKeySpecException {
+        return (T) keyFactory.get().generatePrivate(new PKCS8EncodedKeySpec(encoded));
+    }
+
+    private static KeyFactory createKeyFactory(final String algorithm) {
+        try {
+            return KeyFactory.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not create " + algorithm + " KeyFactory", e);
+        }
+    }
+
+    private static class CacheKey {
+
+        private final ThreadLocal<KeyFactory> keyFactory;
+        private final byte[] encoded;
+        private final int hashCode;
+
+        private CacheKey(final ThreadLocal<KeyFactory> keyFactory, final byte[] encoded) {
+            this(keyFactory, encoded, 31 * keyFactory.hashCode() + Arrays.hashCode(encoded));
+        }
+
+        private CacheKey(final ThreadLocal<KeyFactory> keyFactory, final byte[] encoded, final int hashCode) {
+            this.keyFactory = keyFactory;
+            this.encoded = encoded;
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            final CacheKey cacheKey = (CacheKey) o;
+            return this.keyFactory == cacheKey.keyFactory && Arrays.equals(this.encoded, cacheKey.encoded);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.keypair;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * A key which is kept in its base64 encoded form until it is used.<br>
+ * Decoding a key requires a KeyFactory, which is by far the most expensive part of loading a session from json.
+ * Writing the session back to json doesn't decode the key.
+ */
+public final class LazyKey<K extends Key> {
+
+    private final Function<String, K> decoder;
+    private volatile String base64;
+    private volatile K key;
+
+    private LazyKey(final String base64, final K key, final Function<String, K> decoder) {
+        this.base64 = base64;
+        this.key = key;
+        this.decoder = decoder;
+    }
+
+    public static <K extends Key> LazyKey<K> of(final K key) {
+        return new LazyKey<>(null, key, null);
+    }
+
+    public static <K extends Key> LazyKey<K> fromBase64(final String base64, final Function<String, K> decoder) {
+        return new LazyKey<>(base64, null, decoder);
+    }
+
+    public K get() {
+        K key = this.key;
+        if (key == null && this.decoder != null) {
+            synchronized (this) {
+                key = this.key;
+                if (key == null) {
+                    this.key = key = this.decoder.apply(this.base64);
+                }
+            }
+        }
+        return key;
+    }
+
+    public String getBase64() {
+        String base64 = this.base64;
+        if (base64 == null) {
+            this.base64 = base64 = Base64.getEncoder().encodeToString(this.key.getEncoded());
+        }
+        return base64;
+    }
+
+    /**
+     * @return True if the key has been decoded already
+     */
+    public boolean isDecoded() {
+        return this.key != null;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LazyKey)) return false;
+        return this.getBase64().equals(((LazyKey<?>) o).getBase64());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.getBase64().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        final K key = this.key;
+        return key != null ? key.toString() : "<not decoded>";
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util.keypair;
+
+import net.raphimc.minecraftauth.MinecraftAuth;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a bounded pool of pre-generated key pairs per curve, which is refilled in the background using the given executor.<br>
+ * If the pool of a curve is empty, the key pair is generated by the fallback supplier on the calling thread.
+ */
+public class PooledKeyPairSupplier implements IKeyPairSupplier {
+
+    private final int poolSize;
+    private final Executor executor;
+    private final IKeyPairSupplier fallbackSupplier;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param poolSize The maximum amount of pre-generated key pairs per curve
+     * @param executor The executor used to generate the key pairs in the background
+     * @param curves   The curves for which the pool should be filled immediately. Pools of other curves are created when they are first requested.
+     */
+    public PooledKeyPairSupplier(final int poolSize, final Executor executor, final String... curves) {
+        this(poolSize, executor, new DirectKeyPairSupplier(), curves);
+    }
+
+    public PooledKeyPairSupplier(final int poolSize, final Executor executor, final IKeyPairSupplier fallbackSupplier, final String... curves) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+
+        this.poolSize = poolSize;
+        this.executor = executor;
+        this.fallbackSupplier = fallbackSupplier;
+        for (String curve : curves) {
+            this.getPool(curve).refill();
+        }
+    }
+
+    @Override
+    public KeyPair getEcKeyPair(final String curve) throws GeneralSecurityException {
+        final Pool pool = this.getPool(curve);
+        final KeyPair keyPair = pool.keyPairs.poll();
+        pool.refill();
+        if (keyPair != null) {
+            this.hitCount.incrementAndGet();
+            return keyPair;
+        }
+
+        this.missCount.incrementAndGet();
+        return this.fallbackSupplier.getEcKeyPair(curve);
+    }
+
+    /**
+     * @return The amount of requested key pairs which were taken from the pool
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return The amount of requested key pairs which had to be generated on the calling thread because the pool was empty
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return The ratio of requested key pairs which were taken from the pool or 0 if no key pairs were requested yet
+     */
+    public double getHitRate() {
+        final long hitCount = this.hitCount.get();
+        final long totalCount = hitCount + this.missCount.get();
+        return totalCount == 0 ? 0D : (double) hitCount / totalCount;
+    }
+
+    /**
+     * @param curve The standard name of the curve
+     * @return The amount of pre-generated key pairs which are currently available for the given curve
+     */
+    public int getAvailableCount(final String curve) {
+        final Pool pool = this.pools.get(curve);
+        return pool != null ? pool.keyPairs.size() : 0;
+    }
+
+    private Pool getPool(final String curve) {
+        return this.pools.computeIfAbsent(curve, Pool::new);
+    }
+
+    private class Pool implements Runnable {
+
+        private final String curve;
+        private final BlockingQueue<KeyPair> keyPairs = new ArrayBlockingQueue<>(PooledKeyPairSupplier.this.poolSize);
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private Pool(final String curve) {
+            this.curve = curve;
+        }
+
+        private void refill() {
+            if (this.keyPairs.remainingCapacity() > 0 && this.refilling.compareAndSet(false, true)) {
+                try {
+                    PooledKeyPairSupplier.this.executor.execute(this);
+                } catch (Throwable e) {
+                    this.refilling.set(false);
+                    MinecraftAuth.LOGGER.error("Failed to schedule refill of " + this.curve + " key pair pool: " + e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (this.keyPairs.remainingCapacity() > 0) {
+                    if (!this.keyPairs.offer(PooledKeyPairSupplier.this.fallbackSupplier.getEcKeyPair(this.curve))) {
+                        break;
+                    }
+                }
+            } catch (Throwable e) {
+                MinecraftAuth.LOGGER.error("Failed to generate " + this.curve + " key pair: " + e.getMessage());
+                this.refilling.set(false);
+                return;
+            }
+
+            this.refilling.set(false);
+            // A key pair might have been taken after the last check but before the flag was reset
+            this.refill();
+        }
+
+    }
+
+}
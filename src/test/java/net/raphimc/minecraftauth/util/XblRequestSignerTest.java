@@ -0,0 +1,148 @@
+/*
+ * This file is part of MinecraftAuth - https://github.com/RaphiMC/MinecraftAuth
+ * Copyright (C) 2022-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.minecraftauth.util;
+
+import com.google.gson.JsonObject;
+import net.lenni0451.commons.httpclient.requests.impl.PostRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XblRequestSignerTest {
+
+    @Test
+    void signatureHeaderVerifies() throws Exception {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        final KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        final JsonObject postData = new JsonObject();
+        postData.addProperty("RelyingParty", "http://xboxlive.com");
+        postData.addProperty("TokenType", "JWT");
+        final PostRequest request = new PostRequest("https://xsts.auth.xboxlive.com/xsts/authorize?test=1");
+        request.setHeader("Authorization", "XBL3.0 x=123;token");
+        request.setContent(new JsonContent(postData));
+
+        final Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+        for (int i = 0; i < 1000; i++) { // About one in 128 signatures has a part shorter than 32 bytes, which has to be padded
+            final byte[] header = Base64.getDecoder().decode(XblRequestSigner.getSignatureHeader(request, (ECPrivateKey) keyPair.getPrivate()).getValue());
+            assertEquals(4 + 8 + 64, header.length);
+            final ByteBuffer buffer = ByteBuffer.wrap(header);
+            assertEquals(1, buffer.getInt());
+            final long windowsTimestamp = buffer.getLong();
+
+            verifier.initVerify(keyPair.getPublic());
+            verifier.update(getSignedData(request, windowsTimestamp));
+            assertTrue(verifier.verify(header, 12, 64), "Invalid signature");
+        }
+    }
+
+    @Test
+    void derToConcatPadsParts() throws GeneralSecurityException {
+        final byte[] r = new byte[32];
+        r[0] = (byte) 0x80; // Encoded with a leading 0 byte
+        r[31] = 1;
+        final byte[] s = new byte[32];
+        s[1] = 0x7F; // Encoded in 31 bytes
+        s[31] = 2;
+
+        final byte[] target = new byte[4 + 64];
+        XblRequestSigner.derToConcat(toDer(r, s, false), target, 4);
+        assertArrayEquals(r, Arrays.copyOfRange(target, 4, 36));
+        assertArrayEquals(s, Arrays.copyOfRange(target, 36, 68));
+
+        Arrays.fill(target, (byte) 0xFF);
+        XblRequestSigner.derToConcat(toDer(r, s, true), target, 4);
+        assertArrayEquals(r, Arrays.copyOfRange(target, 4, 36));
+        assertArrayEquals(s, Arrays.copyOfRange(target, 36, 68));
+    }
+
+    @Test
+    void derToConcatRejectsInvalidSignatures() {
+        final byte[] der = toDer(new byte[32], new byte[32], false);
+        final byte[] target = new byte[64];
+        assertThrows(GeneralSecurityException.class, () -> XblRequestSigner.derToConcat(Arrays.copyOf(der, der.length - 1), target, 0));
+        der[2] = 0x03;
+        assertThrows(GeneralSecurityException.class, () -> XblRequestSigner.derToConcat(der, target, 0));
+    }
+
+    private static byte[] getSignedData(final PostRequest request, final long windowsTimestamp) throws IOException {
+        final ByteArrayOutputStream signedData = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(signedData);
+        data.writeInt(1); // Policy Version
+        data.writeByte(0);
+        data.writeLong(windowsTimestamp);
+        data.writeByte(0);
+        data.write(request.getMethod().getBytes(StandardCharsets.UTF_8));
+        data.writeByte(0);
+        data.write((request.getURL().getPath() + request.getURL().getQuery()).getBytes(StandardCharsets.UTF_8));
+        data.writeByte(0);
+        data.write(request.getFirstHeader("Authorization").get().getBytes(StandardCharsets.UTF_8));
+        data.writeByte(0);
+        data.write(request.getContent().getAsBytes());
+        data.writeByte(0);
+        return signedData.toByteArray();
+    }
+
+    /**
+     * Encodes r and s as DER SEQUENCE of two minimal INTEGERs
+     *
+     * @param longFormLength Whether to encode the length of the SEQUENCE in the long form
+     */
+    private static byte[] toDer(final byte[] r, final byte[] s, final boolean longFormLength) {
+        final byte[] rInteger = toDerInteger(r);
+        final byte[] sInteger = toDerInteger(s);
+        final ByteBuffer der = ByteBuffer.allocate(3 + rInteger.length + sInteger.length);
+        der.put((byte) 0x30);
+        if (longFormLength) {
+            der.put((byte) 0x81);
+        }
+        der.put((byte) (rInteger.length + sInteger.length));
+        der.put(rInteger).put(sInteger);
+        return Arrays.copyOf(der.array(), der.position());
+    }
+
+    private static byte[] toDerInteger(final byte[] value) {
+        int start = 0;
+        while (start < value.length - 1 && value[start] == 0 && (value[start + 1] & 0x80) == 0) {
+            start++;
+        }
+        final boolean signPadding = (value[start] & 0x80) != 0;
+        final int length = value.length - start + (signPadding ? 1 : 0);
+        final byte[] integer = new byte[2 + length];
+        integer[0] = 0x02;
+        integer[1] = (byte) length;
+        System.arraycopy(value, start, integer, integer.length - (value.length - start), value.length - start);
+        return integer;
+    }
+
+}